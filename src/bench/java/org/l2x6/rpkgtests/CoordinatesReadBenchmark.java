@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.l2x6.rpkgtests.SyntheticPoms.PomSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * {@link Ga#read(Path, java.nio.charset.Charset)} and {@link Gav#read(Path, java.nio.charset.Charset)} as used for
+ * every scanned POM and for the parent and rpkg POMs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CoordinatesReadBenchmark {
+
+    @Param
+    PomSize size;
+
+    Path pomPath;
+
+    @Setup
+    public void setup() throws IOException {
+        pomPath = Files.createTempFile("rpkgtests-bench-", ".xml");
+        Files.write(pomPath, SyntheticPoms.pom(size).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(pomPath);
+    }
+
+    @Benchmark
+    public Ga gaRead() {
+        return Ga.read(pomPath, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Gav gavRead() {
+        return Gav.read(pomPath, StandardCharsets.UTF_8);
+    }
+}
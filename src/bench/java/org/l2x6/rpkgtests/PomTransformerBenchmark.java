@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.l2x6.rpkgtests.SyntheticPoms.PomSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The POM transformation performed by {@link RepackageAndInstallTestJarsMojo} for every test jar.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PomTransformerBenchmark {
+
+    @Param
+    PomSize size;
+
+    String pom;
+
+    @Setup
+    public void setup() {
+        pom = SyntheticPoms.pom(size);
+    }
+
+    @Benchmark
+    public String transform() throws IOException, XMLStreamException {
+        final StringWriter out = new StringWriter(pom.length());
+        PomTransformer.transform(new StringReader(pom), out, "acme-module-rpkgtests", "org.acme", "1.2.3-SNAPSHOT");
+        return out.toString();
+    }
+}
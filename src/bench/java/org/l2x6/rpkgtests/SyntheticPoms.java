@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+/**
+ * Generates synthetic POMs and test jar catalogs of various sizes for the benchmarks.
+ */
+public class SyntheticPoms {
+
+    /** Sizes of the generated POMs, from a trivial module up to a large aggregator-like POM */
+    public enum PomSize {
+        small(5, 0),
+        medium(50, 2),
+        large(250, 10),
+        huge(1000, 50);
+
+        private final int dependencies;
+        private final int profiles;
+
+        private PomSize(int dependencies, int profiles) {
+            this.dependencies = dependencies;
+            this.profiles = profiles;
+        }
+    }
+
+    public static String pom(PomSize size) {
+        final StringBuilder sb = new StringBuilder(1024 + size.dependencies * 256 + size.profiles * 1024);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\"")
+                .append(" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"")
+                .append(" xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n")
+                .append("    <modelVersion>4.0.0</modelVersion>\n")
+                .append("    <parent>\n")
+                .append("        <groupId>org.acme</groupId>\n")
+                .append("        <artifactId>acme-parent</artifactId>\n")
+                .append("        <version>1.2.3-SNAPSHOT</version>\n")
+                .append("    </parent>\n")
+                .append("    <artifactId>acme-module</artifactId>\n")
+                .append("    <name>Acme Module</name>\n")
+                .append("    <description>A synthetic module with ").append(size.dependencies)
+                .append(" dependencies and ").append(size.profiles).append(" profiles</description>\n")
+                .append("    <properties>\n");
+        for (int i = 0; i < size.dependencies / 10; i++) {
+            sb.append("        <version.dep-").append(i).append(">1.").append(i).append(".0</version.dep-").append(i)
+                    .append(">\n");
+        }
+        sb.append("    </properties>\n");
+        dependencies(sb, "    ", size.dependencies);
+        sb.append("    <build>\n")
+                .append("        <plugins>\n")
+                .append("            <plugin>\n")
+                .append("                <groupId>org.apache.maven.plugins</groupId>\n")
+                .append("                <artifactId>maven-jar-plugin</artifactId>\n")
+                .append("                <executions>\n")
+                .append("                    <execution>\n")
+                .append("                        <goals>\n")
+                .append("                            <goal>test-jar</goal>\n")
+                .append("                        </goals>\n")
+                .append("                    </execution>\n")
+                .append("                </executions>\n")
+                .append("            </plugin>\n")
+                .append("        </plugins>\n")
+                .append("    </build>\n");
+        if (size.profiles > 0) {
+            sb.append("    <profiles>\n");
+            for (int i = 0; i < size.profiles; i++) {
+                sb.append("        <profile>\n")
+                        .append("            <id>profile-").append(i).append("</id>\n")
+                        .append("            <activation>\n")
+                        .append("                <property>\n")
+                        .append("                    <name>profile-").append(i).append("</name>\n")
+                        .append("                </property>\n")
+                        .append("            </activation>\n");
+                dependencies(sb, "            ", 5);
+                sb.append("        </profile>\n");
+            }
+            sb.append("    </profiles>\n");
+        }
+        sb.append("</project>\n");
+        return sb.toString();
+    }
+
+    static void dependencies(StringBuilder sb, String indent, int count) {
+        sb.append(indent).append("<dependencies>\n");
+        for (int i = 0; i < count; i++) {
+            sb.append(indent).append("    <dependency>\n")
+                    .append(indent).append("        <groupId>org.acme.group").append(i % 7).append("</groupId>\n")
+                    .append(indent).append("        <artifactId>dep-").append(i).append("</artifactId>\n")
+                    .append(indent).append("        <version>${version.dep-").append(i / 10).append("}</version>\n");
+            switch (i % 3) {
+                case 0:
+                    sb.append(indent).append("        <scope>test</scope>\n");
+                    break;
+                case 1:
+                    sb.append(indent).append("        <scope>provided</scope>\n");
+                    break;
+                default:
+                    break;
+            }
+            sb.append(indent).append("    </dependency>\n");
+        }
+        sb.append(indent).append("</dependencies>\n");
+    }
+
+    /**
+     * @param count the number of test artifacts
+     * @return a test jars catalog in the format produced by {@link CreateTestJarsXmlMojo}
+     */
+    public static String testJars(int count) {
+        final StringBuilder sb = new StringBuilder(128 + count * 160);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<testArtifacts>\n");
+        for (int i = 0; i < count; i++) {
+            sb.append("    <testArtifact>\n")
+                    .append("        <groupId>org.acme.group").append(i % 7).append("</groupId>\n")
+                    .append("        <artifactId>acme-module-").append(i).append("</artifactId>\n")
+                    .append("    </testArtifact>\n");
+        }
+        sb.append("</testArtifacts>\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * A base for all mojos of this plugin, recording {@link Metrics} of every execution.
+ *
+ * @since 0.11.0
+ */
+public abstract class AbstractRpkgtestsMojo extends AbstractMojo {
+
+    /**
+     * The directory where to store the {@link Metrics} of the execution as
+     * {@code metrics-<goal>-<executionId>.json} and optionally {@code metrics-<goal>-<executionId>.txt} in the
+     * OpenMetrics text format, so that several executions of the same goal in one module do not overwrite each
+     * other's metrics.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.metricsDir", defaultValue = "${project.build.directory}/rpkgtests")
+    private File metricsDir;
+
+    /**
+     * If {@code true} the {@link Metrics} will also be written in the OpenMetrics text format.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.metricsOpenMetrics", defaultValue = "false")
+    private boolean metricsOpenMetrics;
+
+    /**
+     * The number of the slowest units of work, such as downloads of individual test jars, to list in the summary
+     * logged at the end of the execution and in {@code metrics-<goal>-<executionId>.json}.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.metricsTopN", defaultValue = "10")
+    private int metricsTopN;
+
+    /**
+     * If set, a JSON file in the Trace Event Format will be written to the given path, containing one event per unit
+     * of work, such as downloading, transforming or installing a single test jar or rendering a single test module.
+     * The file can be viewed in {@code chrome://tracing} or <a href="https://ui.perfetto.dev/">Perfetto</a>.
+     * <p>
+     * Independently of this option, the same units of work are emitted as {@code org.l2x6.rpkgtests.Span} JFR events
+     * if the JVM supports JFR and a flight recording is running.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.traceFile")
+    private File traceFile;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    protected String pluginVersion;
+
+    protected Metrics metrics;
+
+    @Override
+    public final void execute() throws MojoExecutionException, MojoFailureException {
+        final String goal = mojoExecution != null ? mojoExecution.getGoal() : getClass().getSimpleName();
+        metrics = new Metrics(goal);
+        final Metrics.Listener jfrListener = jfrListener(goal);
+        if (jfrListener != null) {
+            metrics.addListener(jfrListener);
+        }
+        try {
+            doExecute();
+        } finally {
+            writeMetrics(goal);
+            writeTrace();
+        }
+    }
+
+    /**
+     * Performs the work of this mojo; called by {@link #execute()}.
+     *
+     * @throws MojoExecutionException on unexpected errors
+     * @throws MojoFailureException on errors caused by the user
+     */
+    protected abstract void doExecute() throws MojoExecutionException, MojoFailureException;
+
+    void writeMetrics(String goal) {
+        for (String line : metrics.summary(metricsTopN)) {
+            getLog().info(line);
+        }
+        if (metricsDir == null) {
+            return;
+        }
+        final Path dir = metricsDir.toPath();
+        final String baseName = mojoExecution != null && mojoExecution.getExecutionId() != null
+                ? "metrics-" + goal + "-" + mojoExecution.getExecutionId()
+                : "metrics-" + goal;
+        try {
+            metrics.writeJson(dir.resolve(baseName + ".json"), metricsTopN);
+            if (metricsOpenMetrics) {
+                metrics.writeOpenMetrics(dir.resolve(baseName + ".txt"));
+            }
+        } catch (IOException e) {
+            getLog().warn("Could not write metrics to " + dir, e);
+        }
+    }
+
+    void writeTrace() {
+        if (traceFile != null) {
+            try {
+                metrics.writeTrace(traceFile.toPath());
+                getLog().info("Trace written to " + traceFile);
+            } catch (IOException e) {
+                getLog().warn("Could not write trace to " + traceFile, e);
+            }
+        }
+    }
+
+    /**
+     * @param goal the goal of the current mojo execution
+     * @return a new {@link JfrSpanListener} or {@code null} if JFR is not available in the current JVM
+     */
+    static Metrics.Listener jfrListener(String goal) {
+        try {
+            Class.forName("jdk.jfr.Event");
+            /* JfrSpanListener must not be referenced directly so that this class can load without jdk.jfr */
+            return (Metrics.Listener) Class.forName("org.l2x6.rpkgtests.JfrSpanListener")
+                    .getDeclaredConstructor(String.class)
+                    .newInstance(goal);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
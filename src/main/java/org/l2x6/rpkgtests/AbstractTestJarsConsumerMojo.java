@@ -18,28 +18,41 @@ package org.l2x6.rpkgtests;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
 
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.aether.SyncContext;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.ArtifactRequest;
 import org.eclipse.aether.resolution.ArtifactResolutionException;
 import org.eclipse.aether.resolution.ArtifactResult;
 
-public abstract class AbstractTestJarsConsumerMojo extends AbstractMojo {
+public abstract class AbstractTestJarsConsumerMojo extends AbstractRpkgtestsMojo {
+    static final String CATALOG = "catalog";
+    static final String POM = "pom";
+
     /**
      * A collection of {@link Gav}s representing test-jars which should be processed by this mojo.
      * <p>
@@ -95,6 +108,26 @@ public abstract class AbstractTestJarsConsumerMojo extends AbstractMojo {
     @Parameter(property = "rpkgtests.encoding", defaultValue = "${project.build.sourceEncoding}")
     private String encoding;
 
+    /**
+     * The directory where the released {@link #testJarXmls} catalogs and the POMs transformed from released test jars
+     * are cached, so that they are shared by all workspaces using the same local Maven repository. If not set,
+     * {@code rpkgtests-cache} next to the local Maven repository is used, e.g. {@code ~/.m2/rpkgtests-cache} for
+     * {@code ~/.m2/repository}.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.cacheDir")
+    private File cacheDir;
+
+    /**
+     * The maximum total size of {@link #cacheDir} in megabytes. Once it is exceeded, the least recently used entries
+     * are deleted. {@code 0} disables the cache.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.cacheMaxSizeMb", defaultValue = "64")
+    private long cacheMaxSizeMb;
+
     @Parameter(defaultValue = "${project.basedir}", readonly = true)
     protected Path baseDir;
 
@@ -107,19 +140,104 @@ public abstract class AbstractTestJarsConsumerMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true, required = true)
     private List<RemoteRepository> repositories;
 
-    private Charset charset;
+    private PersistentCache persistentCache;
 
     public Charset getCharset() {
-        if (charset == null) {
-            charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
-        }
-        return charset;
+        return encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
     }
 
     public void setBaseDir(File baseDir) {
         this.baseDir = baseDir.toPath();
     }
 
+    /**
+     * @return the {@link PersistentCache} located in {@link #cacheDir} or {@code null} if the cache is disabled
+     */
+    protected synchronized PersistentCache getPersistentCache() {
+        if (persistentCache == null && cacheMaxSizeMb > 0) {
+            persistentCache = new PersistentCache(getCacheDir(), cacheMaxSizeMb * 1024 * 1024);
+        }
+        return persistentCache;
+    }
+
+    /**
+     * Evicts the least recently used entries from the {@link PersistentCache} if this mojo has added something to it.
+     */
+    protected void trimPersistentCache() {
+        final PersistentCache cache = getPersistentCache();
+        if (cache != null) {
+            try (Metrics.Span span = metrics.start("trimCache", getCacheDir().toString())) {
+                final int evicted = cache.trim();
+                if (evicted > 0) {
+                    metrics.count("persistentCacheEvicted", evicted);
+                }
+            } catch (IOException | UncheckedIOException e) {
+                getLog().warn("Could not trim " + getCacheDir(), e);
+            }
+        }
+    }
+
+    /**
+     * @return {@link #cacheDir} or {@code rpkgtests-cache} next to the local Maven repository if {@link #cacheDir} is
+     *         not set
+     */
+    Path getCacheDir() {
+        if (cacheDir != null) {
+            return cacheDir.toPath();
+        }
+        final Path localRepo = repoSession.getLocalRepository().getBasedir().toPath().toAbsolutePath().normalize();
+        return localRepo.getParent() == null ? localRepo.resolve(".rpkgtests-cache")
+                : localRepo.resolveSibling("rpkgtests-cache");
+    }
+
+    static boolean isRelease(Gav gav) {
+        return !gav.getVersion().endsWith("-SNAPSHOT");
+    }
+
+    /**
+     * Resolves the given {@code artifacts} in a single batch.
+     *
+     * @param artifacts the artifacts to resolve
+     * @return a {@link List} of {@link ArtifactResult}s in the same order as {@code artifacts}; the results of
+     *         the artifacts that could not be resolved have their exceptions attached
+     */
+    protected List<ArtifactResult> resolveArtifacts(Collection<Artifact> artifacts) {
+        return resolveArtifacts(artifacts, this.repoSession);
+    }
+
+    /**
+     * Resolves the given {@code artifacts} in a single batch, recording a {@code download} {@link Metrics.Span} for
+     * each file actually downloaded, see {@link DownloadSpans}.
+     *
+     * @param artifacts the artifacts to resolve
+     * @return a {@link List} of {@link ArtifactResult}s in the same order as {@code artifacts}; the results of
+     *         the artifacts that could not be resolved have their exceptions attached
+     */
+    protected List<ArtifactResult> resolveArtifactsRecordingDownloads(Collection<Artifact> artifacts) {
+        final DefaultRepositorySystemSession session = new DefaultRepositorySystemSession(this.repoSession);
+        session.setTransferListener(new DownloadSpans(this.repoSession.getTransferListener(), metrics));
+        return resolveArtifacts(artifacts, session);
+    }
+
+    List<ArtifactResult> resolveArtifacts(Collection<Artifact> artifacts, RepositorySystemSession session) {
+        final List<ArtifactRequest> requests = artifacts.stream()
+                .map(a -> new ArtifactRequest().setRepositories(this.repositories).setArtifact(a))
+                .collect(Collectors.toList());
+        try {
+            return repoSystem.resolveArtifacts(session, requests);
+        } catch (ArtifactResolutionException e) {
+            return e.getResults();
+        }
+    }
+
+    /**
+     * @return a new exclusive {@link SyncContext} through which the installation of artifacts to the local Maven
+     *         repository can be coordinated with other threads and processes using the same local repository
+     */
+    protected SyncContext newSyncContext() {
+        return repoSystem.newSyncContext(repoSession, false);
+    }
+
     protected Set<Gav> getTestJarsOrFail() throws MojoFailureException {
         Set<Gav> result = getTestJars();
         if (result.isEmpty()) {
@@ -135,28 +253,181 @@ public abstract class AbstractTestJarsConsumerMojo extends AbstractMojo {
         if (testJars != null && !testJars.isEmpty()) {
             result.addAll(testJars);
         }
+        if (testJarXmls != null && !testJarXmls.isEmpty()) {
+            result.addAll(getCatalogTestJars());
+        }
+        metrics.count("testJars", result.size());
+        return result;
+    }
+
+    /**
+     * The {@link Gav}s listed in {@link #testJarXmls}, memoized in the {@link SessionData} of the current
+     * {@link RepositorySystemSession} so that other mojo executions in the same build consuming the same catalogs do
+     * not need to resolve and parse them again.
+     *
+     * @return an unmodifiable sorted {@link Set} of {@link Gav}s
+     */
+    Set<Gav> getCatalogTestJars() {
+        final Charset charset = getCharset();
+        final String key = testJarXmls.stream()
+                .map(gav -> gav + "@" + gav.getVersionPlaceholder())
+                .collect(Collectors.joining(",",
+                        AbstractTestJarsConsumerMojo.class.getName() + ".catalogs[" + charset.name() + "]:", ""));
+        final SessionData data = repoSession.getData();
+        @SuppressWarnings("unchecked")
+        final Set<Gav> cached = (Set<Gav>) data.get(key);
+        if (cached != null) {
+            metrics.count("catalogCacheHits", 1);
+            return cached;
+        }
+        final Set<Gav> result = Collections.unmodifiableSet(readCatalogs(charset));
+        if (!data.set(key, null, result)) {
+            /* a concurrent execution was faster; prefer its result so that all executions share one instance */
+            @SuppressWarnings("unchecked")
+            final Set<Gav> winner = (Set<Gav>) data.get(key);
+            return winner != null ? winner : result;
+        }
+        return result;
+    }
+
+    /**
+     * Reads the {@link #testJarXmls} catalogs. The released ones are taken from the {@link PersistentCache} if
+     * possible; the rest is resolved in a single batch and parsed in parallel. A released catalog never changes, so it
+     * is cached under its coordinates rather than under the digest of its content that would require resolving it.
+     *
+     * @param charset the encoding of the catalogs
+     * @return a concurrent sorted {@link Set} of test jars
+     */
+    Set<Gav> readCatalogs(Charset charset) {
+        final Set<Gav> result = new ConcurrentSkipListSet<>();
+        final PersistentCache cache = getPersistentCache();
+        final List<Gav> misses = new ArrayList<>(testJarXmls.size());
         for (Gav testJarXml : testJarXmls) {
+            if (cache != null && isRelease(testJarXml)
+                    && readCachedCatalog(cache.get(CATALOG, catalogKey(testJarXml, charset)), testJarXml, result)) {
+                metrics.count("persistentCacheHits", 1);
+            } else {
+                misses.add(testJarXml);
+            }
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
 
-            final Artifact aetherArtifact = testJarXml.asAetherArtifact("xml", null);
+        final List<Artifact> artifacts = misses.stream()
+                .map(testJarXml -> testJarXml.asAetherArtifact("xml", null))
+                .collect(Collectors.toList());
+        final List<ArtifactResult> results;
+        try (Metrics.Span span = metrics.start("resolveCatalogs", artifacts.size() + " catalogs")) {
+            results = resolveArtifacts(artifacts);
+        }
+        for (int i = 0; i < results.size(); i++) {
+            final ArtifactResult resolutionResult = results.get(i);
+            if (!resolutionResult.isResolved()) {
+                final RuntimeException e = new RuntimeException("Could not resolve " + artifacts.get(i));
+                resolutionResult.getExceptions().forEach(e::addSuppressed);
+                throw e;
+            }
+        }
 
-            final ArtifactRequest req = new ArtifactRequest().setRepositories(this.repositories).setArtifact(aetherArtifact);
-            try {
-                final ArtifactResult resolutionResult = repoSystem.resolveArtifact(this.repoSession, req);
+        final int threads = Math.min(results.size(), RpkgUtils.effectiveThreads(0));
+        final ExecutorService executor = RpkgUtils.newFixedThreadPool("rpkgtests-catalog", threads);
+        try {
+            final List<CompletableFuture<Void>> futures = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                final Gav testJarXml = misses.get(i);
+                final Path testJarsPath = results.get(i).getArtifact().getFile().toPath();
+                futures.add(CompletableFuture.runAsync(() -> {
+                    final List<Ga> gas = new ArrayList<>();
+                    try (Metrics.Span span = metrics.start("readCatalog", testJarXml.toString());
+                            Reader reader = Files.newBufferedReader(testJarsPath, charset)) {
+                        Gas.read(reader, testJarsPath.toString(), gas::add);
+                    } catch (IOException e) {
+                        throw new RuntimeException("Could not read from " + testJarsPath, e);
+                    }
+                    gas.forEach(ga -> result.add(ga.toGav(testJarXml.getVersionPlaceholder())));
+                    if (cache != null && isRelease(testJarXml)) {
+                        final StringBuilder content = new StringBuilder();
+                        for (Ga ga : gas) {
+                            content.append(ga.getGroupId()).append(':').append(ga.getArtifactId());
+                            final TestJarMetadata m = ga.getMetadata();
+                            if (m != null) {
+                                content.append('\t').append(toString(m.getTestsJarSize()))
+                                        .append('\t').append(toString(m.getTestClasses()))
+                                        .append('\t').append(toString(m.getTestDurationMillis()));
+                            }
+                            content.append('\n');
+                        }
+                        try {
+                            cache.put(CATALOG, catalogKey(testJarXml, charset),
+                                    content.toString().getBytes(StandardCharsets.UTF_8));
+                        } catch (IOException e) {
+                            getLog().warn("Could not cache " + testJarXml, e);
+                        }
+                    }
+                }, executor));
+            }
+            RpkgUtils.join(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])));
+        } finally {
+            executor.shutdownNow();
+        }
+        trimPersistentCache();
+        return result;
+    }
 
-                final Path testJarsPath = resolutionResult.getArtifact().getFile().toPath();
-                try (Reader reader = Files.newBufferedReader(testJarsPath, getCharset())) {
-                    final Gas tj = Gas.read(reader, testJarsPath.toString());
-                    tj.getGas().stream()
-                            .map(ga -> ga.toGav(testJarXml.getVersionPlaceholder()))
-                            .forEach(result::add);
-                } catch (IOException e) {
-                    throw new RuntimeException("Could not read from " + testJarsPath);
+    static String toString(Number value) {
+        return value == null ? "" : value.toString();
+    }
+
+    static Long toLong(String value) {
+        return value.isEmpty() ? null : Long.valueOf(value);
+    }
+
+    static Integer toInteger(String value) {
+        return value.isEmpty() ? null : Integer.valueOf(value);
+    }
+
+    String catalogKey(Gav testJarXml, Charset charset) {
+        return Fingerprint.builder()
+                .value("plugin.version", pluginVersion)
+                .value("catalog", testJarXml.toString())
+                .value("encoding", charset.name())
+                .build()
+                .digest();
+    }
+
+    /**
+     * @param cached the cached catalog, one {@code groupId:artifactId} per line, optionally followed by the tab
+     *        separated {@link TestJarMetadata} values, or {@code null}
+     * @param testJarXml the catalog the {@code cached} file was created from
+     * @param result the {@link Set} to add the test jars to
+     * @return {@code true} if the {@code cached} file could be read; {@code false} otherwise
+     */
+    static boolean readCachedCatalog(Path cached, Gav testJarXml, Set<Gav> result) {
+        if (cached == null) {
+            return false;
+        }
+        final List<Gav> gavs = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(cached, StandardCharsets.UTF_8)) {
+                final String[] columns = line.split("\t", -1);
+                final int colonPos = columns[0].indexOf(':');
+                if (colonPos <= 0) {
+                    return false;
                 }
-            } catch (ArtifactResolutionException e) {
-                throw new RuntimeException("Could not resolve " + aetherArtifact, e);
+                final Gav gav = new Gav(columns[0].substring(0, colonPos), columns[0].substring(colonPos + 1),
+                        testJarXml.getVersionPlaceholder());
+                if (columns.length == 4) {
+                    gav.setMetadata(new TestJarMetadata(toLong(columns[1]), toInteger(columns[2]), toLong(columns[3])));
+                }
+                gavs.add(gav);
             }
+        } catch (IOException | NumberFormatException e) {
+            /* evicted concurrently or broken */
+            return false;
         }
-        return result;
+        result.addAll(gavs);
+        return true;
     }
 
 }
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An exclusive lock on a lock file, held both against other threads of this JVM and against other processes. It
+ * serializes writers of a single artifact in a local Maven repository independently of whether and how the
+ * {@code SyncContext} of the Maven Resolver coordinates processes: on Maven 3.3.x the {@code SyncContext} is a no-op
+ * and on Maven 3.9 it locks within the JVM only unless a file based named lock factory is configured.
+ * <p>
+ * {@link FileChannel#lock()} is held on behalf of the whole JVM, so an in-JVM lock per lock file is taken first. The
+ * in-JVM locks are reference counted and dropped once no thread holds or awaits them, so that long living JVMs, such
+ * as mvnd or IDEs, do not accumulate one per artifact ever installed.
+ * <p>
+ * The lock files are left in place, because deleting them would race with other processes that opened them already.
+ * Hence a {@code <artifactId>-<version>.rpkgtests.lock} file stays next to every repackaged artifact in the local
+ * Maven repository.
+ */
+final class ArtifactLock implements AutoCloseable {
+    private static final ConcurrentMap<Path, JvmLock> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path key;
+    private final JvmLock jvmLock;
+    private final FileChannel channel;
+    private final FileLock fileLock;
+
+    private ArtifactLock(Path key, JvmLock jvmLock, FileChannel channel, FileLock fileLock) {
+        this.key = key;
+        this.jvmLock = jvmLock;
+        this.channel = channel;
+        this.fileLock = fileLock;
+    }
+
+    /**
+     * Blocks until the lock on the given {@code lockFile} is acquired. The returned {@link ArtifactLock} must be closed
+     * by the same thread.
+     *
+     * @param lockFile the lock file, created if it does not exist
+     * @return a new {@link ArtifactLock}
+     * @throws IOException if the lock file could not be created or locked
+     */
+    static ArtifactLock acquire(Path lockFile) throws IOException {
+        final Path key = lockFile.toAbsolutePath().normalize();
+        final JvmLock jvmLock = JVM_LOCKS.compute(key, (k, v) -> {
+            final JvmLock result = v != null ? v : new JvmLock();
+            result.users++;
+            return result;
+        });
+        FileChannel channel = null;
+        try {
+            jvmLock.lock.lock();
+            try {
+                Files.createDirectories(lockFile.getParent());
+                channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                return new ArtifactLock(key, jvmLock, channel, channel.lock());
+            } catch (IOException | RuntimeException e) {
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+                jvmLock.lock.unlock();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            release(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Decrements the number of users of the {@link JvmLock} stored under the given {@code key} and removes it once
+     * there are none.
+     *
+     * @param key the normalized absolute path of the lock file
+     */
+    static void release(Path key) {
+        JVM_LOCKS.computeIfPresent(key, (k, v) -> --v.users == 0 ? null : v);
+    }
+
+    /**
+     * @return the number of in-JVM locks currently held or awaited
+     */
+    static int jvmLockCount() {
+        return JVM_LOCKS.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            fileLock.release();
+        } finally {
+            try {
+                channel.close();
+            } finally {
+                jvmLock.lock.unlock();
+                release(key);
+            }
+        }
+    }
+
+    /**
+     * An in-JVM lock along with the number of threads holding or awaiting it; {@link #users} is modified only
+     * within the atomic {@code compute} methods of {@link #JVM_LOCKS}.
+     */
+    static final class JvmLock {
+        final ReentrantLock lock = new ReentrantLock();
+        int users;
+    }
+}
@@ -24,24 +24,34 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-
-import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.model.fileset.FileSet;
 import org.apache.maven.shared.model.fileset.util.FileSetManager;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.l2x6.rpkgtests.PomIndex.PomEntry;
 
 /**
  * Create the list of test jar artifacts in the XML format, something like
@@ -66,7 +76,7 @@ import org.apache.maven.shared.model.fileset.util.FileSetManager;
  * @since 0.4.0
  */
 @Mojo(name = "create-test-jars-file", requiresDependencyResolution = ResolutionScope.NONE, defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
-public class CreateTestJarsXmlMojo extends AbstractMojo {
+public class CreateTestJarsXmlMojo extends AbstractRpkgtestsMojo {
 
     /**
      * The path where the Mojo should store the resulting XML file.
@@ -79,6 +89,9 @@ public class CreateTestJarsXmlMojo extends AbstractMojo {
     /**
      * A list of FileSets to select {@code pom.xml} files to include in the {@code test-jars.xml} file, see the
      * <a href="https://maven.apache.org/shared/file-management/fileset.html">FileSet documentation</a>
+     * <p>
+     * With {@code <source>reactor</source>} the {@code includes} and {@code excludes} are matched against the paths
+     * of the {@code pom.xml} files of the projects in the current reactor relative to the {@code directory}.
      *
      * @since 0.4.0
      */
@@ -96,42 +109,342 @@ public class CreateTestJarsXmlMojo extends AbstractMojo {
     @Parameter(property = "rpkgtests.encoding", defaultValue = "${project.build.sourceEncoding}")
     private String encoding;
 
-    @Override
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    /**
+     * The number of threads to use for scanning the {@link #fileSets} and for reading the {@code pom.xml} files. If
+     * {@code 0} or less, the number of available processors is used.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Where to take the test jar modules from. Possible values:
+     * <ul>
+     * <li>{@code files} - read the {@code pom.xml} files matched by {@link #fileSets}</li>
+     * <li>{@code reactor} - take the projects of the current reactor whose {@code pom.xml} files are matched by
+     * {@link #fileSets}; this avoids any file I/O and takes the effective {@code groupId} of each project into
+     * account, but it only works if this mojo is executed in a build containing the test jar modules</li>
+     * </ul>
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.source", defaultValue = "files")
+    private String source;
+
+    /**
+     * How to find out whether a module matched by {@link #fileSets} produces a {@code tests} jar. Possible values:
+     * <ul>
+     * <li>{@code none} - all matched modules are assumed to produce a {@code tests} jar</li>
+     * <li>{@code auto} - with {@code <source>reactor</source>}, only the modules whose effective build binds the
+     * {@code test-jar} goal of {@code maven-jar-plugin} are included; with {@code <source>files</source>}, only the
+     * modules that have some files under {@code src/test} are included, because a {@code test-jar} binding inherited
+     * from a parent cannot be seen in the {@code pom.xml} file of the module</li>
+     * </ul>
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.testJarDetection", defaultValue = "none")
+    private String testJarDetection;
+
+    /**
+     * If {@code true} the size of the {@code tests} jar, the number of test classes in it and the duration of the
+     * last test run according to {@code surefire-reports} are added to each {@code <testArtifact>} if available, so
+     * that the consumers can schedule the work by cost. This requires the test jar modules to be built already; with
+     * {@code <source>files</source>}, their build directory is assumed to be {@code target}.
+     * <p>
+     * Note that the test durations usually differ on every run of the tests, so with this option on, the catalog
+     * changes and gets rewritten on every execution, even if the set of test jars is the same.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.collectMetadata", defaultValue = "false")
+    private boolean collectMetadata;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * The file where to store the sizes, modification times and coordinates of the {@code pom.xml} files scanned by
+     * this execution, so that the next execution needs to read only the {@code pom.xml} files that were added or
+     * changed in the meantime. If not set, all {@code pom.xml} files are read on every execution.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.pomIndexPath", defaultValue = "${project.build.directory}/rpkgtests/pom-index-${mojoExecution.executionId}.txt")
+    private File pomIndexPath;
 
+    @Override
+    protected void doExecute() throws MojoExecutionException, MojoFailureException {
         final Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        final Path outputPath = baseDir.toPath().resolve(testJarsPath.toPath());
+        final boolean detectTestJars = TestJarDetection.of(testJarDetection) == TestJarDetection.AUTO;
+        switch (Source.of(source)) {
+            case REACTOR:
+                fromReactor(outputPath, charset, detectTestJars);
+                break;
+            case FILES:
+                fromFiles(outputPath, charset, detectTestJars);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected " + Source.class.getName() + " " + source);
+        }
+    }
 
-        final Set<Path> pomPaths = new TreeSet<>();
-        final FileSetManager fileSetManager = new FileSetManager();
-        for (FileSet fs : fileSets) {
-            final Path dir = Paths.get(fs.getDirectory());
-            final String[] includedFiles = fileSetManager.getIncludedFiles(fs);
-            for (String includedFile : includedFiles) {
-                pomPaths.add(dir.resolve(includedFile));
+    void fromReactor(Path outputPath, Charset charset, boolean detectTestJars) throws MojoExecutionException {
+        final Map<Path, Ga> gas = new TreeMap<>();
+        try (Metrics.Span span = metrics.start("scan", "reactor")) {
+            for (MavenProject project : session.getProjects()) {
+                final Path pomPath = project.getFile().toPath();
+                for (FileSet fs : fileSets) {
+                    if (matches(fs, pomPath)) {
+                        if (!detectTestJars || bindsTestJar(project)) {
+                            final Ga ga = new Ga(project.getGroupId(), project.getArtifactId());
+                            gas.put(pomPath, collectMetadata
+                                    ? ga.withMetadata(TestJarMetadata.collect(Paths.get(project.getBuild().getDirectory()),
+                                            project.getBuild().getFinalName() + "-tests.jar", project.getArtifactId()))
+                                    : ga);
+                        } else {
+                            getLog().debug("Skipping " + project.getId() + " as it does not produce a tests jar");
+                            metrics.count("noTestJar", 1);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        writeCatalog(outputPath, charset, w -> {
+            for (Ga ga : gas.values()) {
+                w.write(ga);
             }
+        });
+        metrics.count("testJars", gas.size());
+    }
+
+    /**
+     * @param project the project to check
+     * @return {@code true} if the effective build of the given {@code project} binds the {@code test-jar} goal of
+     *         {@code maven-jar-plugin}
+     */
+    static boolean bindsTestJar(MavenProject project) {
+        if ("pom".equals(project.getPackaging())) {
+            return false;
         }
-        final List<Ga> gas = new ArrayList<>();
-        for (Path pomPath : pomPaths) {
-            gas.add(Ga.read(pomPath, charset));
+        for (Plugin plugin : project.getBuildPlugins()) {
+            if ("org.apache.maven.plugins".equals(plugin.getGroupId())
+                    && "maven-jar-plugin".equals(plugin.getArtifactId())) {
+                for (PluginExecution execution : plugin.getExecutions()) {
+                    if (execution.getGoals().contains("test-jar")) {
+                        return true;
+                    }
+                }
+            }
         }
+        return false;
+    }
 
-        final Path outputPath = baseDir.toPath().resolve(testJarsPath.toPath());
-        try {
-            Files.createDirectories(outputPath.getParent());
+    /**
+     * @param moduleDir the base directory of a module
+     * @return {@code true} if there is at least one regular file under {@code src/test} of the given module
+     */
+    static boolean hasTestSources(Path moduleDir) {
+        final Path srcTest = moduleDir.resolve("src/test");
+        if (!Files.isDirectory(srcTest)) {
+            return false;
+        }
+        try (Stream<Path> files = Files.walk(srcTest)) {
+            return files.anyMatch(Files::isRegularFile);
         } catch (IOException e) {
-            throw new MojoExecutionException("Could not create " + outputPath.getParent(), e);
+            throw new RuntimeException("Could not walk " + srcTest, e);
         }
-        try (BufferedWriter w = Files.newBufferedWriter(outputPath, charset)) {
-            final JAXBContext ctx = JAXBContext.newInstance(Gas.class, Gav.class);
-            final Marshaller m = ctx.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            m.marshal(new Gas(gas), w);
-        } catch (JAXBException e) {
-            throw new MojoExecutionException("Could not serialize testJars " + gas, e);
+    }
+
+    /**
+     * @param fs the {@link FileSet} to match against
+     * @param pomPath the path to match
+     * @return {@code true} if {@code pomPath} is under the {@code directory} of the given {@link FileSet} and its path
+     *         relative to it matches some of the {@code includes} and none of the {@code excludes}
+     */
+    static boolean matches(FileSet fs, Path pomPath) {
+        final Path dir = Paths.get(fs.getDirectory()).toAbsolutePath().normalize();
+        final Path normalizedPomPath = pomPath.toAbsolutePath().normalize();
+        if (!normalizedPomPath.startsWith(dir)) {
+            return false;
+        }
+        final String relPath = dir.relativize(normalizedPomPath).toString();
+        final List<String> includes = fs.getIncludes().isEmpty() ? Collections.singletonList("**")
+                : fs.getIncludes();
+        return includes.stream().anyMatch(pattern -> SelectorUtils.matchPath(normalizePattern(pattern), relPath))
+                && fs.getExcludes().stream()
+                        .noneMatch(pattern -> SelectorUtils.matchPath(normalizePattern(pattern), relPath));
+    }
+
+    /**
+     * Normalizes the given {@code pattern} the same way as {@code DirectoryScanner} does.
+     *
+     * @param pattern the pattern to normalize
+     * @return the normalized pattern
+     */
+    static String normalizePattern(String pattern) {
+        String result = pattern.trim().replace('/', File.separatorChar).replace('\\', File.separatorChar);
+        if (result.endsWith(File.separator)) {
+            result += "**";
+        }
+        return result;
+    }
+
+    void fromFiles(Path outputPath, Charset charset, boolean detectTestJars) throws MojoExecutionException {
+        final ExecutorService executor = RpkgUtils.newFixedThreadPool("rpkgtests-scan",
+                RpkgUtils.effectiveThreads(threads));
+        try {
+            final List<CompletableFuture<List<Path>>> scans = new ArrayList<>(fileSets.length);
+            for (FileSet fs : fileSets) {
+                scans.add(CompletableFuture.supplyAsync(() -> {
+                    try (Metrics.Span span = metrics.start("scan", fs.getDirectory())) {
+                        final Path dir = Paths.get(fs.getDirectory());
+                        final String[] includedFiles = new FileSetManager().getIncludedFiles(fs);
+                        final List<Path> result = new ArrayList<>(includedFiles.length);
+                        for (String includedFile : includedFiles) {
+                            result.add(dir.resolve(includedFile));
+                        }
+                        return result;
+                    }
+                }, executor));
+            }
+            /* The order of the output must not depend on the order in which the scans and reads finish */
+            final Set<Path> pomPaths = new TreeSet<>();
+            for (CompletableFuture<List<Path>> scan : scans) {
+                pomPaths.addAll(RpkgUtils.join(scan));
+            }
+            final String indexHeader = "# rpkgtests pom index; plugin.version=" + pluginVersion + "; encoding="
+                    + charset.name();
+            final PomIndex index = pomIndexPath != null ? PomIndex.read(pomIndexPath.toPath(), indexHeader)
+                    : new PomIndex(Collections.emptyMap());
+            final List<CompletableFuture<PomEntry>> reads = new ArrayList<>(pomPaths.size());
+            for (Path pomPath : pomPaths) {
+                reads.add(CompletableFuture.supplyAsync(() -> {
+                    final BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(pomPath, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        throw new RuntimeException("Could not read the attributes of " + pomPath, e);
+                    }
+                    final Ga indexed = index.get(pomPath, attrs);
+                    if (indexed != null) {
+                        metrics.count("pomsUpToDate", 1);
+                        return PomIndex.entry(attrs, indexed);
+                    }
+                    try (Metrics.Span span = metrics.start("readPom", pomPath.toString())) {
+                        metrics.count("pomsRead", 1);
+                        return PomIndex.entry(attrs, Ga.read(pomPath, charset));
+                    }
+                }, executor));
+            }
+            final List<CompletableFuture<Boolean>> testJarChecks = new ArrayList<>(pomPaths.size());
+            if (detectTestJars) {
+                for (Path pomPath : pomPaths) {
+                    testJarChecks.add(CompletableFuture.supplyAsync(() -> hasTestSources(pomPath.getParent()),
+                            executor));
+                }
+            }
+
+            final List<CompletableFuture<TestJarMetadata>> metadata = new ArrayList<>(pomPaths.size());
+            if (collectMetadata) {
+                final Iterator<Path> pomPathsIt = pomPaths.iterator();
+                for (CompletableFuture<PomEntry> read : reads) {
+                    final Path buildDir = pomPathsIt.next().getParent().resolve("target");
+                    metadata.add(read.thenApplyAsync(
+                            entry -> TestJarMetadata.collect(buildDir, null, entry.getGa().getArtifactId()), executor));
+                }
+            }
+
+            final Map<String, PomEntry> newEntries = new TreeMap<>();
+            final AtomicInteger testJarCount = new AtomicInteger();
+            /* Each entry is written as soon as it and all its predecessors are read */
+            writeCatalog(outputPath, charset, w -> {
+                final Iterator<Path> pomPathsIt = pomPaths.iterator();
+                final Iterator<CompletableFuture<Boolean>> testJarChecksIt = testJarChecks.iterator();
+                final Iterator<CompletableFuture<TestJarMetadata>> metadataIt = metadata.iterator();
+                for (CompletableFuture<PomEntry> read : reads) {
+                    final PomEntry entry = RpkgUtils.join(read);
+                    final Path pomPath = pomPathsIt.next();
+                    newEntries.put(pomPath.toString(), entry);
+                    final Ga ga = collectMetadata ? entry.getGa().withMetadata(RpkgUtils.join(metadataIt.next()))
+                            : entry.getGa();
+                    if (!detectTestJars || RpkgUtils.join(testJarChecksIt.next())) {
+                        w.write(ga);
+                        testJarCount.incrementAndGet();
+                    } else {
+                        getLog().debug("Skipping " + pomPath + " as there are no files under src/test");
+                        metrics.count("noTestJar", 1);
+                    }
+                }
+            });
+            metrics.count("testJars", testJarCount.get());
+
+            final PomIndex newIndex = new PomIndex(newEntries);
+            if (pomIndexPath != null && !newIndex.equals(index)) {
+                try {
+                    newIndex.write(pomIndexPath.toPath(), indexHeader);
+                } catch (IOException e) {
+                    getLog().warn("Could not write " + pomIndexPath, e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the catalog to a temporary file first and replaces {@code outputPath} with it only if the content has
+     * changed.
+     *
+     * @param outputPath the catalog file to write
+     * @param charset the encoding of the catalog file
+     * @param content writes the {@code <testArtifact>} entries
+     * @throws MojoExecutionException if the catalog file could not be written
+     */
+    void writeCatalog(Path outputPath, Charset charset, CatalogContent content) throws MojoExecutionException {
+        try {
+            final Path tmp = RpkgUtils.tempSibling(outputPath);
+            try {
+                try (BufferedWriter out = Files.newBufferedWriter(tmp, charset);
+                        Gas.StreamWriter w = Gas.writer(out, charset)) {
+                    content.writeTo(w);
+                }
+                if (!RpkgUtils.replaceIfChanged(tmp, outputPath)) {
+                    getLog().debug(outputPath + " is up to date");
+                    metrics.count("catalogUpToDate", 1);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
         } catch (IOException e) {
             throw new MojoExecutionException("Could not write to " + outputPath, e);
         }
+    }
+
+    @FunctionalInterface
+    interface CatalogContent {
+        void writeTo(Gas.StreamWriter w) throws IOException;
+    }
 
+    enum TestJarDetection {
+        NONE,
+        AUTO;
+
+        static TestJarDetection of(String value) {
+            return RpkgUtils.parseEnum(TestJarDetection.class, value, "testJarDetection");
+        }
+    }
+
+    enum Source {
+        FILES,
+        REACTOR;
+
+        static Source of(String value) {
+            return RpkgUtils.parseEnum(Source.class, value, "source");
+        }
     }
 
 }
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.aether.transfer.TransferCancelledException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferEvent.RequestType;
+import org.eclipse.aether.transfer.TransferListener;
+import org.eclipse.aether.transfer.TransferResource;
+
+/**
+ * A {@link TransferListener} recording a {@code download} {@link Metrics.Span} for each file downloaded from a remote
+ * repository, so that the downloads of a batch resolution show up as individual units of work. All events are
+ * forwarded to the {@link TransferListener} of the Maven session, so that the usual transfer progress is still
+ * logged.
+ *
+ * @since 0.11.0
+ */
+class DownloadSpans implements TransferListener {
+    private final TransferListener delegate;
+    private final Metrics metrics;
+    /* TransferResource does not override equals() so the same instance passed to all events of a transfer is the key */
+    private final Map<TransferResource, Metrics.Span> spans = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate the {@link TransferListener} to forward all events to or {@code null}
+     * @param metrics the {@link Metrics} to record the {@link Metrics.Span}s in
+     */
+    DownloadSpans(TransferListener delegate, Metrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void transferInitiated(TransferEvent event) throws TransferCancelledException {
+        if (event.getRequestType() == RequestType.GET) {
+            final TransferResource resource = event.getResource();
+            spans.put(resource, metrics.start("download", resource.getResourceName()));
+        }
+        if (delegate != null) {
+            delegate.transferInitiated(event);
+        }
+    }
+
+    @Override
+    public void transferStarted(TransferEvent event) throws TransferCancelledException {
+        if (delegate != null) {
+            delegate.transferStarted(event);
+        }
+    }
+
+    @Override
+    public void transferProgressed(TransferEvent event) throws TransferCancelledException {
+        if (delegate != null) {
+            delegate.transferProgressed(event);
+        }
+    }
+
+    @Override
+    public void transferCorrupted(TransferEvent event) throws TransferCancelledException {
+        if (delegate != null) {
+            delegate.transferCorrupted(event);
+        }
+    }
+
+    @Override
+    public void transferSucceeded(TransferEvent event) {
+        close(event);
+        if (delegate != null) {
+            delegate.transferSucceeded(event);
+        }
+    }
+
+    @Override
+    public void transferFailed(TransferEvent event) {
+        close(event);
+        if (delegate != null) {
+            delegate.transferFailed(event);
+        }
+    }
+
+    void close(TransferEvent event) {
+        final Metrics.Span span = spans.remove(event.getResource());
+        if (span != null) {
+            span.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * A set of key-value pairs describing the inputs of some operation, such as the sizes and modification times or
+ * SHA-256 digests of the source files and the version of the plugin. If the {@link Fingerprint} of the inputs did not
+ * change since the last time, the operation does not need to be performed again.
+ *
+ * @since 0.11.0
+ */
+public class Fingerprint {
+    private final Map<String, String> entries;
+
+    Fingerprint(Map<String, String> entries) {
+        this.entries = entries;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param path the file to read
+     * @return the {@link Fingerprint} stored in the given file or {@code null} if the file does not exist
+     */
+    public static Fingerprint read(Path path) {
+        final Map<String, String> entries = new TreeMap<>();
+        try (BufferedReader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                final int eqPos = line.indexOf('=');
+                if (eqPos > 0) {
+                    entries.put(line.substring(0, eqPos), line.substring(eqPos + 1));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + path, e);
+        }
+        return new Fingerprint(entries);
+    }
+
+    /**
+     * Stores this {@link Fingerprint} in the given file, one {@code key=value} pair per line sorted by key. The file is
+     * replaced atomically.
+     *
+     * @param path the file to write
+     */
+    public void write(Path path) {
+        try {
+            final Path tmp = RpkgUtils.tempSibling(path);
+            try {
+                try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    for (Entry<String, String> en : entries.entrySet()) {
+                        w.write(en.getKey());
+                        w.write('=');
+                        w.write(en.getValue());
+                        w.write('\n');
+                    }
+                }
+                RpkgUtils.moveAtomically(tmp, path);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write " + path, e);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return entries.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        return entries.equals(((Fingerprint) obj).entries);
+    }
+
+    @Override
+    public String toString() {
+        return entries.toString();
+    }
+
+    /**
+     * @return the hex encoded SHA-256 digest of all entries of this {@link Fingerprint}, suitable as a cache key
+     */
+    public String digest() {
+        final MessageDigest digest = newSha256();
+        for (Entry<String, String> en : entries.entrySet()) {
+            digest.update(en.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '=');
+            digest.update(en.getValue().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return toHex(digest.digest());
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String sha256(Path path) throws IOException {
+        final MessageDigest digest = newSha256();
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(path)) {
+            int len;
+            while ((len = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, len);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    static String toHex(byte[] bytes) {
+        final StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    public static class Builder {
+        private final Map<String, String> entries = new TreeMap<>();
+
+        public Builder value(String key, String value) {
+            entries.put(key, String.valueOf(value));
+            return this;
+        }
+
+        /**
+         * Adds the size and either the SHA-256 digest or the last modification time of the given {@code file}.
+         *
+         * @param key the prefix of the keys to add
+         * @param file the file to fingerprint
+         * @param sha256 if {@code true} the SHA-256 digest of the content of {@code file} will be added; otherwise its
+         *        last modification time will be added
+         * @return this {@link Builder}
+         */
+        public Builder file(String key, Path file, boolean sha256) {
+            try {
+                entries.put(key + ".size", String.valueOf(Files.size(file)));
+                if (sha256) {
+                    entries.put(key + ".sha256", sha256(file));
+                } else {
+                    entries.put(key + ".lastModified", String.valueOf(Files.getLastModifiedTime(file).toMillis()));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Could not fingerprint " + file, e);
+            }
+            return this;
+        }
+
+        public Fingerprint build() {
+            return new Fingerprint(new TreeMap<>(entries));
+        }
+    }
+}
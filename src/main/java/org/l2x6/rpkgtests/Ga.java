@@ -16,26 +16,14 @@
  */
 package org.l2x6.rpkgtests;
 
-import java.io.IOException;
-import java.io.Reader;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 
-import javax.xml.bind.annotation.XmlAccessType;
-import javax.xml.bind.annotation.XmlAccessorType;
-import javax.xml.bind.annotation.XmlRootElement;
-
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
-
-@XmlRootElement(name = "testArtifact")
-@XmlAccessorType(XmlAccessType.FIELD)
 public class Ga implements Comparable<Ga> {
     String groupId;
     String artifactId;
+    TestJarMetadata metadata;
 
     public Ga() {
     }
@@ -51,8 +39,21 @@ public class Ga implements Comparable<Ga> {
         return new Ga(groupId, artifactId);
     }
 
+    /**
+     * @param metadata the {@link TestJarMetadata} to attach, can be {@code null}
+     * @return a new {@link Ga} with the same {@code groupId} and {@code artifactId} as this one
+     * @since 0.11.0
+     */
+    public Ga withMetadata(TestJarMetadata metadata) {
+        final Ga result = new Ga(groupId, artifactId);
+        result.metadata = metadata;
+        return result;
+    }
+
     public Gav toGav(String version) {
-        return new Gav(groupId, artifactId, version);
+        final Gav result = new Gav(groupId, artifactId, version);
+        result.setMetadata(metadata);
+        return result;
     }
 
     public String getGroupId() {
@@ -71,6 +72,15 @@ public class Ga implements Comparable<Ga> {
         this.artifactId = artifactId;
     }
 
+    /**
+     * @return the {@link TestJarMetadata} or {@code null} if not known; not taken into account by
+     *         {@link #equals(Object)}
+     * @since 0.11.0
+     */
+    public TestJarMetadata getMetadata() {
+        return metadata;
+    }
+
     @Override
     public String toString() {
         return groupId + ":" + artifactId;
@@ -108,14 +118,7 @@ public class Ga implements Comparable<Ga> {
     }
 
     public static Ga read(Path pomPath, Charset charset) {
-        try (Reader r = Files.newBufferedReader(pomPath, charset)) {
-            final Model pom = new MavenXpp3Reader().read(r);
-            final String groupId = pom.getGroupId() != null ? pom.getGroupId() : pom.getParent().getGroupId();
-            final String artifactId = pom.getArtifactId();
-            return new Ga(groupId, artifactId);
-        } catch (IOException | XmlPullParserException e) {
-            throw new RuntimeException("Could not read or parse " + pomPath, e);
-        }
+        return PomCoordinates.read(pomPath, charset).toGa(pomPath.toString());
     }
 
     @Override
@@ -16,32 +16,141 @@
  */
 package org.l2x6.rpkgtests;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.annotation.XmlAccessType;
-import javax.xml.bind.annotation.XmlAccessorType;
-import javax.xml.bind.annotation.XmlElement;
-import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
-@XmlRootElement(name = "testArtifacts")
-@XmlAccessorType(XmlAccessType.FIELD)
+/**
+ * A list of {@link Ga}s together with a streaming StAX codec for the {@code test-jars.xml} format:
+ *
+ * <pre>
+ * {@code
+ * <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+ * <testArtifacts>
+ *     <testArtifact>
+ *         <groupId>org.l2x6.rpkgtests.create-test-jars</groupId>
+ *         <artifactId>create-test-jars-testable-1</artifactId>
+ *     </testArtifact>
+ * </testArtifacts>
+ * }
+ * </pre>
+ *
+ * Each {@code <testArtifact>} may optionally contain {@code <testsJarSize>}, {@code <testClasses>} and
+ * {@code <testDurationMillis>} elements, see {@link TestJarMetadata}. Readers ignore any elements they do not know.
+ */
 public class Gas {
+    static final String TEST_ARTIFACTS = "testArtifacts";
+    static final String TEST_ARTIFACT = "testArtifact";
+    static final String GROUP_ID = "groupId";
+    static final String ARTIFACT_ID = "artifactId";
+    static final String TESTS_JAR_SIZE = "testsJarSize";
+    static final String TEST_CLASSES = "testClasses";
+    static final String TEST_DURATION_MILLIS = "testDurationMillis";
 
     public static Gas read(Reader reader, String source) {
+        final List<Ga> gas = new ArrayList<>();
+        read(reader, source, gas::add);
+        return new Gas(gas);
+    }
+
+    /**
+     * Reads the {@code <testArtifact>} entries one by one passing each of them to {@code consumer} as soon as it was
+     * read, without building any intermediate tree.
+     *
+     * @param reader the XML to read
+     * @param source a description of the source of {@code reader} for error messages
+     * @param consumer the callback to pass the entries to
+     */
+    public static void read(Reader reader, String source, Consumer<Ga> consumer) {
+        XMLStreamReader r = null;
         try {
-            final JAXBContext ctx = JAXBContext.newInstance(Gas.class, Ga.class);
-            final Unmarshaller um = ctx.createUnmarshaller();
-            return (Gas) um.unmarshal(reader);
-        } catch (JAXBException e) {
+            r = RpkgUtils.xmlInputFactory().createXMLStreamReader(reader);
+            String groupId = null;
+            String artifactId = null;
+            Long testsJarSize = null;
+            Integer testClasses = null;
+            Long testDurationMillis = null;
+            int depth = 0;
+            while (r.hasNext()) {
+                switch (r.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        if (depth == 1 && !TEST_ARTIFACTS.equals(r.getLocalName())) {
+                            throw new IllegalStateException("Expected <" + TEST_ARTIFACTS + "> root element, found <"
+                                    + r.getLocalName() + "> in " + source);
+                        } else if (depth == 2 && TEST_ARTIFACT.equals(r.getLocalName())) {
+                            groupId = null;
+                            artifactId = null;
+                            testsJarSize = null;
+                            testClasses = null;
+                            testDurationMillis = null;
+                        } else if (depth == 3 && GROUP_ID.equals(r.getLocalName())) {
+                            groupId = r.getElementText().trim();
+                            depth--;
+                        } else if (depth == 3 && ARTIFACT_ID.equals(r.getLocalName())) {
+                            artifactId = r.getElementText().trim();
+                            depth--;
+                        } else if (depth == 3 && TESTS_JAR_SIZE.equals(r.getLocalName())) {
+                            testsJarSize = Long.valueOf(r.getElementText().trim());
+                            depth--;
+                        } else if (depth == 3 && TEST_CLASSES.equals(r.getLocalName())) {
+                            testClasses = Integer.valueOf(r.getElementText().trim());
+                            depth--;
+                        } else if (depth == 3 && TEST_DURATION_MILLIS.equals(r.getLocalName())) {
+                            testDurationMillis = Long.valueOf(r.getElementText().trim());
+                            depth--;
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (depth == 2 && TEST_ARTIFACT.equals(r.getLocalName())) {
+                            if (groupId == null || artifactId == null) {
+                                throw new IllegalStateException("<" + TEST_ARTIFACT + "> without <" + GROUP_ID + "> or <"
+                                        + ARTIFACT_ID + "> in " + source);
+                            }
+                            final Ga ga = new Ga(groupId, artifactId);
+                            consumer.accept(testsJarSize == null && testClasses == null && testDurationMillis == null
+                                    ? ga
+                                    : ga.withMetadata(new TestJarMetadata(testsJarSize, testClasses, testDurationMillis)));
+                        }
+                        depth--;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
             throw new RuntimeException("Could not deserialize testJars from XML " + source, e);
+        } finally {
+            if (r != null) {
+                try {
+                    r.close();
+                } catch (XMLStreamException e) {
+                    /* ignore */
+                }
+            }
         }
     }
 
-    @XmlElement(name = "testArtifact")
+    /**
+     * @param out the {@link Writer} to write to
+     * @param charset the encoding of {@code out}, used in the XML declaration
+     * @return a new {@link StreamWriter} that has already written the XML declaration and the root element
+     * @throws IOException if the writing failed
+     */
+    public static StreamWriter writer(Writer out, Charset charset) throws IOException {
+        return new StreamWriter(out, charset);
+    }
+
     private List<Ga> gas;
 
     public Gas() {
@@ -58,4 +167,87 @@ public class Gas {
     public void setGas(List<Ga> gas) {
         this.gas = gas;
     }
+
+    /**
+     * @param out the {@link Writer} to write to
+     * @param charset the encoding of {@code out}, used in the XML declaration
+     * @throws IOException if the writing failed
+     */
+    public void write(Writer out, Charset charset) throws IOException {
+        try (StreamWriter w = writer(out, charset)) {
+            if (gas != null) {
+                for (Ga ga : gas) {
+                    w.write(ga);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes {@code <testArtifact>} entries as they are produced. {@link #close()} ends the document but does not
+     * close the underlying {@link Writer}.
+     */
+    public static class StreamWriter implements Closeable {
+        private final Writer out;
+        private final XMLStreamWriter w;
+
+        StreamWriter(Writer out, Charset charset) throws IOException {
+            this.out = out;
+            out.write("<?xml version=\"1.0\" encoding=\"" + charset.name() + "\" standalone=\"yes\"?>\n");
+            try {
+                this.w = RpkgUtils.xmlOutputFactory().createXMLStreamWriter(out);
+                w.writeStartElement(TEST_ARTIFACTS);
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        public void write(Ga ga) throws IOException {
+            try {
+                w.writeCharacters("\n    ");
+                w.writeStartElement(TEST_ARTIFACT);
+                w.writeCharacters("\n        ");
+                w.writeStartElement(GROUP_ID);
+                w.writeCharacters(ga.getGroupId());
+                w.writeEndElement();
+                w.writeCharacters("\n        ");
+                w.writeStartElement(ARTIFACT_ID);
+                w.writeCharacters(ga.getArtifactId());
+                w.writeEndElement();
+                final TestJarMetadata metadata = ga.getMetadata();
+                if (metadata != null) {
+                    writeOptional(TESTS_JAR_SIZE, metadata.getTestsJarSize());
+                    writeOptional(TEST_CLASSES, metadata.getTestClasses());
+                    writeOptional(TEST_DURATION_MILLIS, metadata.getTestDurationMillis());
+                }
+                w.writeCharacters("\n    ");
+                w.writeEndElement();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        void writeOptional(String elementName, Number value) throws XMLStreamException {
+            if (value != null) {
+                w.writeCharacters("\n        ");
+                w.writeStartElement(elementName);
+                w.writeCharacters(value.toString());
+                w.writeEndElement();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                w.writeCharacters("\n");
+                w.writeEndElement();
+                w.writeCharacters("\n");
+                w.flush();
+                w.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+            out.flush();
+        }
+    }
 }
@@ -16,19 +16,13 @@
  */
 package org.l2x6.rpkgtests;
 
-import java.io.IOException;
-import java.io.Reader;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.shared.transfer.artifact.ArtifactCoordinate;
 import org.apache.maven.shared.transfer.artifact.DefaultArtifactCoordinate;
 import org.apache.maven.shared.transfer.dependencies.DefaultDependableCoordinate;
 import org.apache.maven.shared.transfer.dependencies.DependableCoordinate;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 
@@ -38,6 +32,7 @@ public class Gav implements Comparable<Gav> {
     String artifactId;
     String version;
     String versionPlaceholder;
+    TestJarMetadata metadata;
 
     public Gav() {
     }
@@ -118,6 +113,19 @@ public class Gav implements Comparable<Gav> {
         this.versionPlaceholder = RpkgUtils.unescapePlaceholder(versionPlaceholder);
     }
 
+    /**
+     * @return the {@link TestJarMetadata} or {@code null} if not known; not taken into account by
+     *         {@link #equals(Object)}
+     * @since 0.11.0
+     */
+    public TestJarMetadata getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(TestJarMetadata metadata) {
+        this.metadata = metadata;
+    }
+
     @Override
     public String toString() {
         return groupId + ":" + artifactId + ":" + version;
@@ -161,15 +169,7 @@ public class Gav implements Comparable<Gav> {
     }
 
     public static Gav read(Path pomPath, Charset charset) {
-        try (Reader r = Files.newBufferedReader(pomPath, charset)) {
-            final Model pom = new MavenXpp3Reader().read(r);
-            final String groupId = pom.getGroupId() != null ? pom.getGroupId() : pom.getParent().getGroupId();
-            final String version = pom.getVersion() != null ? pom.getVersion() : pom.getParent().getVersion();
-            final String artifactId = pom.getArtifactId();
-            return new Gav(groupId, artifactId, version);
-        } catch (IOException | XmlPullParserException e) {
-            throw new RuntimeException("Could not read or parse " + pomPath, e);
-        }
+        return PomCoordinates.read(pomPath, charset).toGav(pomPath.toString());
     }
 
     @Override
@@ -18,8 +18,11 @@ package org.l2x6.rpkgtests;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.Reader;
+import java.io.StringWriter;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -27,15 +30,19 @@ import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import freemarker.cache.ClassTemplateLoader;
 import freemarker.cache.FileTemplateLoader;
@@ -59,12 +66,15 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
  *
  * @since 0.4.0
  */
-@Mojo(name = "create-test-modules", requiresDependencyResolution = ResolutionScope.NONE, defaultPhase = LifecyclePhase.GENERATE_RESOURCES)
+@Mojo(name = "create-test-modules", requiresDependencyResolution = ResolutionScope.NONE, defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
 public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
     static final String DEFAULT_TEMPLATES_URI_BASE = "classpath:/create-test-modules-templates";
+    static final String RUN_TESTS_MODULE_POM_TEMPLATE = "run-tests-module-pom.xml";
+    static final String RPKG_MODULE_POM_TEMPLATE = "rpkg-module-pom.xml";
     private static final String CLASSPATH_PREFIX = "classpath:";
     private static final String FILE_PREFIX = "file:";
     private static final Pattern INDENT_PATTERN = Pattern.compile("<project[^>]*>[\r\n]*([ \t]*)<");
+    private static final Pattern MODULE_PATTERN = Pattern.compile("<module>([^<]*)</module>");
     private static final String MANAGED_MODULES_START = "<!-- START: modules generated by rpkgtests-maven-plugin -->";
     private static final String MANAGED_MODULES_END = "<!-- END: modules generated by rpkgtests-maven-plugin -->";
 
@@ -130,6 +140,48 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
     @Parameter(property = "rpkgtests.clean", defaultValue = "true")
     private boolean clean;
 
+    /**
+     * How to clean {@link #testModulesParentDir} if {@link #clean} is {@code true}. Possible values:
+     * <ul>
+     * <li>{@code full} - delete all files selected by {@link #cleanIncludes} and {@link #cleanExcludes} and generate
+     * all modules anew</li>
+     * <li>{@code incremental} - delete the files selected by {@link #cleanIncludes} and {@link #cleanExcludes} only in
+     * the directories of those modules that were generated by the previous execution of this mojo (as listed in the
+     * managed section of {@code <modules>} in {@code testModulesParentDir/pom.xml}) but are not needed anymore; the
+     * files of the remaining modules are rewritten only if their content changes. Falls back to {@code full} if
+     * there is no managed section yet.</li>
+     * </ul>
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.cleanMode", defaultValue = "full")
+    private String cleanMode;
+
+    /**
+     * How to delete the files selected for cleaning, see {@link #clean}. Possible values:
+     * <ul>
+     * <li>{@code delete} - delete the selected files one by one before generating the modules</li>
+     * <li>{@code trash} - move each selected directory as a whole to {@link #trashDir} and delete it there in the
+     * background, in parallel with generating the modules; the mojo waits for the deletion to finish before it
+     * returns. Directories in which some of the {@link #cleanExcludes} might match something, as well as directories
+     * that cannot be renamed, e.g. because they are on a different file system than {@link #trashDir}, are cleaned as
+     * with {@code delete}, so that both strategies delete the same files.</li>
+     * </ul>
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.cleanStrategy", defaultValue = "delete")
+    private String cleanStrategy;
+
+    /**
+     * The directory to move the doomed directories to if {@link #cleanStrategy} is {@code trash}. It should be on the
+     * same file system as {@link #testModulesParentDir}.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.trashDir", defaultValue = "${project.build.directory}/rpkgtests/trash")
+    private Path trashDir;
+
     /**
      * The artifactId of the module producing the {@code -rpkg} artifacts.
      *
@@ -169,110 +221,441 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
     @Parameter(property = "rpkgtests.cleanExcludes", defaultValue = ".**,pom.xml")
     private List<String> cleanExcludes;
 
+    /**
+     * The number of threads to use for rendering the module {@code pom.xml} files and for deleting the trash, see
+     * {@link #cleanStrategy}. If {@code 0} or less, the number of available processors is used.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * The order of the generated modules in {@code <modules>} of {@code testModulesParentDir/pom.xml}. Possible
+     * values:
+     * <ul>
+     * <li>{@code natural} - sorted by {@code groupId}, {@code artifactId} and {@code version}; the order changes only
+     * when test jars are added or removed</li>
+     * <li>{@code duration} - the modules whose tests took longest according to the {@code testDurationMillis}
+     * in {@code test-jars.xml} come first, so that parallel builds ({@code -T}) start them first; the ones with
+     * unknown duration come last in the natural order. Note that the durations usually change with every run of the
+     * tests, hence {@code testModulesParentDir/pom.xml} is rewritten and the modules are generated anew whenever the
+     * catalog is refreshed.</li>
+     * </ul>
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.moduleOrder", defaultValue = "natural")
+    private String moduleOrder;
+
+    /**
+     * If {@code true} the modules are generated even if none of the inputs has changed since the last execution.
+     * Otherwise the mojo does nothing if the test jars, the configuration of this mojo, the templates and the size and
+     * modification time of {@code testModulesParentDir/pom.xml} and {@link #rpkgModulePomXmlPath} are the same as
+     * after the last execution and all generated {@code pom.xml} files still exist.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.modules.force", defaultValue = "false")
+    private boolean force;
+
+    /**
+     * Where to store the {@link Fingerprint} of the inputs of the last execution, see {@link #force}.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.fingerprintPath", defaultValue = "${project.build.directory}/rpkgtests/create-test-modules-${mojoExecution.executionId}.fingerprint")
+    private Path fingerprintPath;
+
     @Override
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    protected void doExecute() throws MojoExecutionException, MojoFailureException {
         final Set<Gav> gavs = getTestJarsOrFail();
 
         final Path testsParentPath = testModulesParentDir.resolve("pom.xml");
+        final Replacers dirReplacers = Replacers.parse(testModuleDirReplacers);
+
+        /* gavs is a TreeSet, so the natural order is kept unless requested otherwise */
+        final List<Gav> orderedGavs = new ArrayList<>(gavs);
+        switch (ModuleOrder.of(moduleOrder)) {
+            case NATURAL:
+                break;
+            case DURATION:
+                orderedGavs.sort(Comparator.comparing(Gav::getMetadata, TestJarMetadata.BY_TEST_DURATION_DESC));
+                break;
+            default:
+                throw new IllegalStateException("Unexpected " + ModuleOrder.class.getName() + " " + moduleOrder);
+        }
+        final List<String> modules = orderedGavs.stream()
+                .map(gav -> dirReplacers.apply(gav.getArtifactId()))
+                .collect(Collectors.toList());
+
+        final TemplateLoader templateLoader = createTemplateLoader(baseDir, templatesUriBase);
+        try (Metrics.Span span = metrics.start("fingerprint", testModulesParentDir.toString())) {
+            if (!force && isUpToDate(testsParentPath, orderedGavs, modules, templateLoader)) {
+                getLog().info("The test modules under " + testModulesParentDir
+                        + " are up to date; use -Drpkgtests.modules.force to generate them anyway");
+                metrics.count("upToDate", 1);
+                return;
+            }
+            /* A failing execution must not leave a matching fingerprint behind */
+            Files.deleteIfExists(fingerprintPath);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not delete " + fingerprintPath, e);
+        }
+
         final Gav parentPom = Gav.read(testsParentPath, getCharset());
         final Replacers artifactIdReplacers = Replacers.parse(testModuleArtifactIdReplacers);
-        final Replacers dirReplacers = Replacers.parse(testModuleDirReplacers);
         final Gav rpkgPom = Gav.read(rpkgModulePomXmlPath, getCharset());
         final String effectiveRpkgtestsPluginVersion = RpkgUtils.unescapePlaceholder(rpkgtestsPluginVersion);
 
-        if (clean) {
-            final FileSystem fs = testsParentPath.getFileSystem();
-            final List<PathMatcher> compiledIncludes = cleanIncludes == null ? Collections.emptyList()
-                    : cleanIncludes.stream()
-                            .map(glob -> "glob:" + glob)
-                            .map(fs::getPathMatcher)
-                            .collect(Collectors.toList());
-            final List<PathMatcher> compiledExcludes = cleanExcludes == null ? Collections.emptyList()
-                    : cleanExcludes.stream()
-                            .map(glob -> "glob:" + glob)
-                            .map(fs::getPathMatcher)
-                            .collect(Collectors.toList());
-            try {
-                Files.walkFileTree(testModulesParentDir, new SimpleFileVisitor<Path>() {
-
-                    @Override
-                    public FileVisitResult postVisitDirectory(
-                            Path dir, IOException exc) throws IOException {
-                        boolean hasChildren = false;
-                        try (Stream<Path> items = Files.list(dir)) {
-                            hasChildren = items.findFirst().isPresent();
-                        }
-                        if (!hasChildren) {
-                            Files.deleteIfExists(dir);
-                        }
-                        return FileVisitResult.CONTINUE;
+        final Trash trash = CleanStrategy.of(cleanStrategy) == CleanStrategy.TRASH
+                ? new Trash(trashDir, RpkgUtils.effectiveThreads(threads))
+                : null;
+        try {
+            if (clean) {
+                try (Metrics.Span span = metrics.start("clean", testModulesParentDir.toString())) {
+                    switch (CleanMode.of(cleanMode)) {
+                        case FULL:
+                            clean(testModulesParentDir, trash);
+                            break;
+                        case INCREMENTAL:
+                            cleanStaleModules(testsParentPath, modules, trash);
+                            break;
+                        default:
+                            throw new IllegalStateException(
+                                    "Unexpected " + CleanMode.class.getName() + " " + cleanMode);
                     }
+                }
+            }
+            if (trash != null) {
+                /* Runs in parallel with the generation below */
+                trash.empty();
+            }
+            final Configuration cfg = new Configuration(Configuration.VERSION_2_3_28);
+            cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+            cfg.setTemplateLoader(templateLoader);
+            cfg.setDefaultEncoding(getCharset().name());
+            cfg.setInterpolationSyntax(Configuration.SQUARE_BRACKET_INTERPOLATION_SYNTAX);
+            cfg.setTagSyntax(Configuration.SQUARE_BRACKET_TAG_SYNTAX);
+
+            /* Template instances are thread safe, so each one is loaded and parsed just once for all modules */
+            final Template runTestsModuleTemplate;
+            final Template rpkgModuleTemplate;
+            try {
+                runTestsModuleTemplate = cfg.getTemplate(RUN_TESTS_MODULE_POM_TEMPLATE);
+                rpkgModuleTemplate = cfg.getTemplate(RPKG_MODULE_POM_TEMPLATE);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not load the templates from " + templatesUriBase, e);
+            }
 
-                    @Override
-                    public FileVisitResult visitFile(
-                            Path file, BasicFileAttributes attrs)
-                            throws IOException {
-                        final Path relative = testModulesParentDir.relativize(file);
-                        if (compiledIncludes.stream()
-                                .anyMatch(matcher -> matcher.matches(relative))
-                                && !compiledExcludes.stream()
-                                        .anyMatch(matcher -> matcher.matches(relative))) {
-                            Files.delete(file);
+            final Charset charset = getCharset();
+            final ExecutorService executor = RpkgUtils.newFixedThreadPool("rpkgtests-render",
+                    Math.max(1, Math.min(orderedGavs.size(), RpkgUtils.effectiveThreads(threads))));
+            try {
+                final List<CompletableFuture<Boolean>> renders = new ArrayList<>(orderedGavs.size());
+                for (int i = 0; i < orderedGavs.size(); i++) {
+                    final Gav gav = orderedGavs.get(i);
+                    final Path pomXmlPath = testModulesParentDir.resolve(modules.get(i)).resolve("pom.xml");
+                    renders.add(CompletableFuture.supplyAsync(() -> {
+                        final String artifactId = artifactIdReplacers.apply(gav.getArtifactId());
+                        final Gav runTestsModule = parentPom.withArtifactId(artifactId);
+                        final TemplateParams model = new TemplateParams(parentPom, "../pom.xml", runTestsModule,
+                                rpkgPom, gav, gavs, effectiveRpkgtestsPluginVersion);
+                        try (Metrics.Span span = metrics.start("render", gav.toString())) {
+                            return evalTemplate(runTestsModuleTemplate, pomXmlPath, charset, model);
+                        } catch (IOException | TemplateException e) {
+                            throw new RuntimeException("Could not generate " + pomXmlPath, e);
                         }
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
+                    }, executor));
+                }
+
+                final TemplateParams model = new TemplateParams(parentPom, "../pom.xml", null, rpkgPom, null, gavs,
+                        effectiveRpkgtestsPluginVersion);
+                try (Metrics.Span span = metrics.start("render", rpkgModulePomXmlPath.toString())) {
+                    countWrite(evalTemplate(rpkgModuleTemplate, rpkgModulePomXmlPath, charset, model));
+                } catch (IOException | TemplateException e) {
+                    throw new RuntimeException("Could not generate " + rpkgModulePomXmlPath, e);
+                }
+
+                for (CompletableFuture<Boolean> render : renders) {
+                    countWrite(RpkgUtils.join(render));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            metrics.count("modules", modules.size());
+            try (Metrics.Span span = metrics.start("addModules", testsParentPath.toString())) {
+                final String testsParentSource = new String(Files.readAllBytes(testsParentPath), getCharset());
+                final String newTestsParentSource = addModules(testsParentSource, testsParentPath, modules);
+                countWrite(!newTestsParentSource.equals(testsParentSource)
+                        && RpkgUtils.writeIfChanged(testsParentPath, newTestsParentSource.getBytes(getCharset())));
             } catch (IOException e) {
-                throw new RuntimeException("Could not walk " + testModulesParentDir, e);
+                throw new RuntimeException("Could not read " + testsParentPath, e);
+            }
+            fingerprint(testsParentPath, orderedGavs, templateLoader).write(fingerprintPath);
+        } finally {
+            if (trash != null) {
+                try (Metrics.Span span = metrics.start("emptyTrash", trashDir.toString())) {
+                    trash.close();
+                } catch (IOException e) {
+                    getLog().warn("Could not delete the content of " + trashDir
+                            + "; it will be deleted by the next execution", e);
+                }
             }
         }
-        final Configuration cfg = new Configuration(Configuration.VERSION_2_3_28);
-        cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-        cfg.setTemplateLoader(createTemplateLoader(baseDir, templatesUriBase));
-        cfg.setDefaultEncoding(getCharset().name());
-        cfg.setInterpolationSyntax(Configuration.SQUARE_BRACKET_INTERPOLATION_SYNTAX);
-        cfg.setTagSyntax(Configuration.SQUARE_BRACKET_TAG_SYNTAX);
-
-        final List<String> modules = new ArrayList<String>();
-        for (Gav gav : gavs) {
-            final String artifactId = artifactIdReplacers.apply(gav.getArtifactId());
-            final String dir = dirReplacers.apply(gav.getArtifactId());
-            final Path moduleDir = testModulesParentDir.resolve(dir);
-            modules.add(dir);
-            try {
-                Files.createDirectories(moduleDir);
-            } catch (IOException e) {
-                throw new MojoExecutionException("Could not create " + moduleDir, e);
+    }
+
+    /**
+     * @param testsParentPath the parent {@code pom.xml} of the generated modules
+     * @param orderedGavs the test jars in the order in which their modules are generated
+     * @param modules the directories of the modules to generate
+     * @param templateLoader the {@link TemplateLoader} to load the templates from
+     * @return {@code true} if all generated {@code pom.xml} files exist and the {@link Fingerprint} stored in
+     *         {@link #fingerprintPath} matches the current inputs; {@code false} otherwise
+     */
+    boolean isUpToDate(Path testsParentPath, List<Gav> orderedGavs, List<String> modules,
+            TemplateLoader templateLoader) {
+        final Fingerprint stored = Fingerprint.read(fingerprintPath);
+        if (stored == null || !Files.isRegularFile(testsParentPath) || !Files.isRegularFile(rpkgModulePomXmlPath)) {
+            return false;
+        }
+        for (String module : modules) {
+            if (!Files.isRegularFile(testModulesParentDir.resolve(module).resolve("pom.xml"))) {
+                return false;
             }
-            final Path pomXmlPath = moduleDir.resolve("pom.xml");
-            final Gav runTestsModule = parentPom.withArtifactId(artifactId);
+        }
+        return stored.equals(fingerprint(testsParentPath, orderedGavs, templateLoader));
+    }
+
+    /**
+     * @param testsParentPath the parent {@code pom.xml} of the generated modules
+     * @param orderedGavs the test jars in the order in which their modules are generated
+     * @param templateLoader the {@link TemplateLoader} to load the templates from
+     * @return a {@link Fingerprint} of all inputs of this mojo
+     */
+    Fingerprint fingerprint(Path testsParentPath, List<Gav> orderedGavs, TemplateLoader templateLoader) {
+        final Charset charset = getCharset();
+        return Fingerprint.builder()
+                .value("plugin.version", pluginVersion)
+                .value("encoding", charset.name())
+                .value("testJars", orderedGavs.stream().map(Gav::toString).collect(Collectors.joining(",")))
+                .value("testModulesParentDir", testModulesParentDir.toString())
+                .value("testModuleArtifactIdReplacers", testModuleArtifactIdReplacers)
+                .value("testModuleDirReplacers", testModuleDirReplacers)
+                .value("rpkgModulePomXmlPath", rpkgModulePomXmlPath.toString())
+                .value("rpkgtestsPluginVersion", rpkgtestsPluginVersion)
+                .value("templatesUriBase", templatesUriBase)
+                .value("template." + RUN_TESTS_MODULE_POM_TEMPLATE,
+                        templateDigest(templateLoader, RUN_TESTS_MODULE_POM_TEMPLATE, charset))
+                .value("template." + RPKG_MODULE_POM_TEMPLATE,
+                        templateDigest(templateLoader, RPKG_MODULE_POM_TEMPLATE, charset))
+                .value("clean", String.valueOf(clean))
+                .value("cleanMode", cleanMode)
+                .value("moduleOrder", moduleOrder)
+                .value("cleanIncludes", String.valueOf(cleanIncludes))
+                .value("cleanExcludes", String.valueOf(cleanExcludes))
+                .file("parentPom", testsParentPath, false)
+                .file("rpkgPom", rpkgModulePomXmlPath, false)
+                .build();
+    }
 
-            final TemplateParams model = new TemplateParams(parentPom, "../pom.xml", runTestsModule, rpkgPom, gav, gavs,
-                    effectiveRpkgtestsPluginVersion);
+    /**
+     * @param templateLoader the {@link TemplateLoader} to load the template from
+     * @param templateName the name of the template
+     * @param charset the encoding of the template
+     * @return the hex encoded SHA-256 digest of the content of the given template
+     */
+    static String templateDigest(TemplateLoader templateLoader, String templateName, Charset charset) {
+        try {
+            final Object source = templateLoader.findTemplateSource(templateName);
+            if (source == null) {
+                throw new IllegalStateException("Could not find template " + templateName);
+            }
             try {
-                evalTemplate(cfg, "run-tests-module-pom.xml", pomXmlPath, getCharset(), model);
-            } catch (IOException | TemplateException e) {
-                throw new RuntimeException(e);
+                final MessageDigest digest = Fingerprint.newSha256();
+                final char[] buffer = new char[4096];
+                try (Reader r = templateLoader.getReader(source, charset.name())) {
+                    int len;
+                    while ((len = r.read(buffer)) >= 0) {
+                        digest.update(new String(buffer, 0, len).getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                return Fingerprint.toHex(digest.digest());
+            } finally {
+                templateLoader.closeTemplateSource(source);
             }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read template " + templateName, e);
         }
+    }
 
-        final TemplateParams model = new TemplateParams(parentPom, "../pom.xml", null, rpkgPom, null, gavs,
-                effectiveRpkgtestsPluginVersion);
+    /**
+     * Deletes the directories of the modules listed in the managed section of {@code <modules>} in
+     * {@code testsParentPath} that are not contained in {@code modules}.
+     *
+     * @param testsParentPath the parent {@code pom.xml} of the generated modules
+     * @param modules the modules to keep
+     * @param trash the {@link Trash} to move the stale module directories to or {@code null} to delete them in place
+     */
+    void cleanStaleModules(Path testsParentPath, List<String> modules, Trash trash) {
+        final List<String> previousModules;
         try {
-            evalTemplate(cfg, "rpkg-module-pom.xml", rpkgModulePomXmlPath, getCharset(), model);
-        } catch (IOException | TemplateException e) {
-            throw new RuntimeException(e);
+            previousModules = managedModules(new String(Files.readAllBytes(testsParentPath), getCharset()));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + testsParentPath, e);
+        }
+        if (previousModules == null) {
+            getLog().info("No modules generated by rpkgtests-maven-plugin found in " + testsParentPath
+                    + "; cleaning " + testModulesParentDir + " fully");
+            clean(testModulesParentDir, trash);
+            return;
         }
+        final Set<String> keep = new HashSet<>(modules);
+        for (String module : previousModules) {
+            final Path moduleDir = testModulesParentDir.resolve(module);
+            if (!keep.contains(module) && Files.isDirectory(moduleDir)) {
+                clean(moduleDir, trash);
+                metrics.count("staleModules", 1);
+            }
+        }
+    }
 
+    /**
+     * Deletes the files under {@code startDir} selected by {@link #cleanIncludes} and {@link #cleanExcludes} and the
+     * directories that got empty by that.
+     *
+     * @param startDir {@link #testModulesParentDir} or one of its subdirectories
+     * @param trash the {@link Trash} to move the selected directories to or {@code null} to delete the selected files
+     *        one by one
+     */
+    void clean(Path startDir, Trash trash) {
+        final FileSystem fs = startDir.getFileSystem();
+        final List<PathMatcher> compiledIncludes = cleanIncludes == null ? Collections.emptyList()
+                : cleanIncludes.stream()
+                        .map(glob -> "glob:" + glob)
+                        .map(fs::getPathMatcher)
+                        .collect(Collectors.toList());
+        final List<PathMatcher> compiledExcludes = cleanExcludes == null ? Collections.emptyList()
+                : cleanExcludes.stream()
+                        .map(glob -> "glob:" + glob)
+                        .map(fs::getPathMatcher)
+                        .collect(Collectors.toList());
         try {
-            String testsParentSource = new String(Files.readAllBytes(testsParentPath), getCharset());
-            testsParentSource = addModules(testsParentSource, testsParentPath, modules);
-            Files.write(testsParentPath, testsParentSource.getBytes(getCharset()));
+            Files.walkFileTree(startDir, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (trash == null || dir.equals(testModulesParentDir)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    final Path normalizedDir = dir.toAbsolutePath().normalize();
+                    if (trash.getDir().startsWith(normalizedDir)) {
+                        /* The trash itself or a directory containing it, such as target */
+                        return normalizedDir.equals(trash.getDir()) ? FileVisitResult.SKIP_SUBTREE
+                                : FileVisitResult.CONTINUE;
+                    }
+                    final Path relative = testModulesParentDir.relativize(dir);
+                    if (isSelected(relative) && !mayExcludeBelow(relative) && trash.moveToTrash(dir)) {
+                        metrics.count("trashedDirs", 1);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(
+                        Path dir, IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    try {
+                        Files.deleteIfExists(dir);
+                    } catch (DirectoryNotEmptyException e) {
+                        /* Some files were excluded */
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(
+                        Path file, BasicFileAttributes attrs)
+                        throws IOException {
+                    if (isSelected(testModulesParentDir.relativize(file))) {
+                        Files.delete(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                boolean mayExcludeBelow(Path relativeDir) {
+                    return cleanExcludes != null && cleanExcludes.stream()
+                            .anyMatch(glob -> mayMatchBelow(glob, relativeDir.toString().replace('\\', '/')));
+                }
+
+                boolean isSelected(Path relative) {
+                    return compiledIncludes.stream().anyMatch(matcher -> matcher.matches(relative))
+                            && !compiledExcludes.stream().anyMatch(matcher -> matcher.matches(relative));
+                }
+            });
         } catch (IOException e) {
-            throw new RuntimeException("Could not read " + testsParentPath, e);
+            throw new RuntimeException("Could not walk " + startDir, e);
         }
     }
 
+    /**
+     * A conservative check whether the given glob may match some path below the given directory: only the literal
+     * prefix of the glob and the depth of globs without {@code **} are taken into account.
+     *
+     * @param glob the glob pattern, such as an element of {@link #cleanExcludes}
+     * @param relativeDir a directory relative to {@link #testModulesParentDir} using {@code /} as separator
+     * @return {@code false} if {@code glob} cannot match any path below {@code relativeDir}; {@code true} otherwise
+     */
+    static boolean mayMatchBelow(String glob, String relativeDir) {
+        final String dirPrefix = relativeDir + "/";
+        int literalEnd = 0;
+        while (literalEnd < glob.length() && "*?[{\\".indexOf(glob.charAt(literalEnd)) < 0) {
+            literalEnd++;
+        }
+        final String literalPrefix = glob.substring(0, literalEnd);
+        if (!literalPrefix.startsWith(dirPrefix) && !dirPrefix.startsWith(literalPrefix)) {
+            return false;
+        }
+        if (glob.contains("**")) {
+            return true;
+        }
+        /* Without **, a glob matches only paths having the same number of segments */
+        return segmentCount(glob) > segmentCount(relativeDir);
+    }
+
+    private static int segmentCount(String path) {
+        int result = 1;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param testsParentSource the source of the parent {@code pom.xml} of the generated modules
+     * @return the modules listed between {@link #MANAGED_MODULES_START} and {@link #MANAGED_MODULES_END} or
+     *         {@code null} if {@code testsParentSource} has no such section
+     */
+    static List<String> managedModules(String testsParentSource) {
+        final int start = testsParentSource.indexOf(MANAGED_MODULES_START);
+        final int end = testsParentSource.indexOf(MANAGED_MODULES_END);
+        if (start < 0 || end < start) {
+            return null;
+        }
+        final List<String> result = new ArrayList<>();
+        final Matcher m = MODULE_PATTERN.matcher(testsParentSource).region(start, end);
+        while (m.find()) {
+            result.add(m.group(1).trim());
+        }
+        return result;
+    }
+
     static String addModules(String testsParentSource, Path path, List<String> modules) {
         final StringBuilder result = new StringBuilder(testsParentSource);
         final String eol = result.indexOf("\r") >= 0 ? "\r\n" : "\n";
@@ -363,12 +746,62 @@ public class GenerateTestModulesMojo extends AbstractTestJarsConsumerMojo {
         this.rpkgModulePomXmlPath = rpkgModulePomXmlPath.toPath();
     }
 
-    static void evalTemplate(Configuration cfg, String templateUri, Path dest, Charset charset, TemplateParams model)
+    public void setFingerprintPath(File fingerprintPath) {
+        this.fingerprintPath = fingerprintPath.toPath();
+    }
+
+    public void setTrashDir(File trashDir) {
+        this.trashDir = trashDir.toPath();
+    }
+
+    /**
+     * Renders the given template into memory and writes the result to {@code dest} only if it differs from the
+     * current content of {@code dest}, so that the modification times of unchanged files are kept. Safe to call from
+     * several threads at once.
+     *
+     * @param template the template to render
+     * @param dest the file to write
+     * @param charset the encoding of {@code dest}
+     * @param model the data model
+     * @return {@code true} if {@code dest} was written; {@code false} if it was up to date
+     * @throws IOException if {@code dest} could not be read or written
+     * @throws TemplateException if the template could not be rendered
+     */
+    static boolean evalTemplate(Template template, Path dest, Charset charset, TemplateParams model)
             throws IOException, TemplateException {
-        final Template template = cfg.getTemplate(templateUri);
-        Files.createDirectories(dest.getParent());
-        try (Writer out = Files.newBufferedWriter(dest)) {
-            template.process(model, out);
+        final StringWriter out = new StringWriter();
+        template.process(model, out);
+        return RpkgUtils.writeIfChanged(dest, out.toString().getBytes(charset));
+    }
+
+    void countWrite(boolean written) {
+        metrics.count(written ? "pomsWritten" : "pomsUpToDate", 1);
+    }
+
+    enum CleanStrategy {
+        DELETE,
+        TRASH;
+
+        static CleanStrategy of(String value) {
+            return RpkgUtils.parseEnum(CleanStrategy.class, value, "cleanStrategy");
+        }
+    }
+
+    enum CleanMode {
+        FULL,
+        INCREMENTAL;
+
+        static CleanMode of(String value) {
+            return RpkgUtils.parseEnum(CleanMode.class, value, "cleanMode");
+        }
+    }
+
+    enum ModuleOrder {
+        NATURAL,
+        DURATION;
+
+        static ModuleOrder of(String value) {
+            return RpkgUtils.parseEnum(ModuleOrder.class, value, "moduleOrder");
         }
     }
 
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The ways how the {@code tests} jar can be installed as the jar of the {@code -rpkgtests} artifact.
+ *
+ * @since 0.11.0
+ */
+public enum InstallStrategy {
+    /** Copy the file */
+    COPY {
+        @Override
+        InstallStrategy installNew(Path source, Path target) throws IOException {
+            copy(source, target);
+            return COPY;
+        }
+    },
+    /** Create a hard link, fall back to {@link #COPY} if that fails */
+    HARDLINK {
+        @Override
+        InstallStrategy installNew(Path source, Path target) throws IOException {
+            try {
+                Files.createLink(target, source);
+                return HARDLINK;
+            } catch (IOException | UnsupportedOperationException e) {
+                return COPY.installNew(source, target);
+            }
+        }
+    },
+    /** Create a relative symbolic link, fall back to {@link #COPY} if that fails */
+    SYMLINK {
+        @Override
+        InstallStrategy installNew(Path source, Path target) throws IOException {
+            try {
+                Files.createSymbolicLink(target, target.getParent().relativize(source));
+                return SYMLINK;
+            } catch (IOException | UnsupportedOperationException e) {
+                return COPY.installNew(source, target);
+            }
+        }
+    },
+    /** {@link #HARDLINK} if the source and the target are on the same file store, otherwise {@link #COPY} */
+    AUTO {
+        @Override
+        InstallStrategy installNew(Path source, Path target) throws IOException {
+            if (Files.getFileStore(source).equals(Files.getFileStore(target.getParent()))) {
+                return HARDLINK.installNew(source, target);
+            }
+            return COPY.installNew(source, target);
+        }
+    };
+
+    public static InstallStrategy of(String value) {
+        return RpkgUtils.parseEnum(InstallStrategy.class, value, "installStrategy");
+    }
+
+    /**
+     * Makes the content of {@code source} available under {@code target}, replacing any existing {@code target}. The
+     * file or link is first created under a temporary name in the directory of {@code target} and then moved to
+     * {@code target} atomically, so that concurrent readers never see a partially written file.
+     *
+     * @param source the file to install
+     * @param target the path to install {@code source} to
+     * @return the strategy that was effectively used, may differ from {@code this} due to fallbacks
+     * @throws IOException if the installation failed
+     */
+    public InstallStrategy install(Path source, Path target) throws IOException {
+        final Path tmp = RpkgUtils.tempSibling(target);
+        try {
+            final InstallStrategy result = installNew(source, tmp);
+            RpkgUtils.moveAtomically(tmp, target);
+            return result;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    abstract InstallStrategy installNew(Path source, Path target) throws IOException;
+
+    /**
+     * Copies {@code source} to {@code target} using
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * so that the kernel can copy the data without passing it through the user space.
+     *
+     * @param source the file to copy
+     * @param target the destination
+     * @throws IOException if the copying failed
+     */
+    static void copy(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import org.l2x6.rpkgtests.Metrics.Span;
+
+/**
+ * Emits a JFR {@link SpanEvent} for every {@link Span}, so that the work of the mojos shows up in flight recordings
+ * of the Maven JVM. This class must only be loaded if the {@code jdk.jfr} module is available, see
+ * {@link AbstractRpkgtestsMojo#jfrListener(String)}.
+ *
+ * @since 0.11.0
+ */
+class JfrSpanListener implements Metrics.Listener {
+    private final Map<Span, SpanEvent> events = new ConcurrentHashMap<>();
+    private final String goal;
+
+    JfrSpanListener(String goal) {
+        this.goal = goal;
+    }
+
+    @Override
+    public void spanStarted(Span span) {
+        final SpanEvent event = new SpanEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            events.put(span, event);
+        }
+    }
+
+    @Override
+    public void spanClosed(Span span) {
+        final SpanEvent event = events.remove(span);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.goal = goal;
+                event.phase = span.getPhase();
+                event.gav = span.getSubject();
+                event.allocatedBytes = span.getAllocatedBytes();
+                event.commit();
+            }
+        }
+    }
+
+    @Name("org.l2x6.rpkgtests.Span")
+    @Label("rpkgtests Span")
+    @Category({ "Maven", "rpkgtests" })
+    @Description("A unit of work of an rpkgtests-maven-plugin mojo, such as downloading or transforming a test jar")
+    @StackTrace(false)
+    static class SpanEvent extends Event {
+        @Label("Goal")
+        String goal;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("GAV")
+        String gav;
+
+        @Label("Allocated Bytes")
+        long allocatedBytes;
+    }
+}
@@ -0,0 +1,445 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Records the duration and the allocated bytes of {@link Span}s of work grouped by phase, such as {@code download},
+ * {@code transform} or {@code install}, plus arbitrary counters. {@link Span}s may be started and closed on any thread
+ * and the allocated bytes are those of the thread on which the {@link Span} was started.
+ *
+ * @since 0.11.0
+ */
+public class Metrics {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final String goal;
+    private final long startNanos = System.nanoTime();
+    private final long startEpochMicros = System.currentTimeMillis() * 1000;
+    private final ConcurrentLinkedQueue<Span> spans = new ConcurrentLinkedQueue<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public Metrics(String goal) {
+        this.goal = goal;
+    }
+
+    /**
+     * @param phase the phase, such as {@code download} or {@code transform}
+     * @param subject the thing being worked on, typically a GAV
+     * @return a new {@link Span} that must be closed once the work is done
+     */
+    public Span start(String phase, String subject) {
+        return new Span(phase, subject);
+    }
+
+    /**
+     * @param name the name of the counter to increment
+     * @param delta the value to add
+     */
+    public void count(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * @param listener the {@link Listener} to notify about every {@link Span} closed from now on
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public String getGoal() {
+        return goal;
+    }
+
+    /**
+     * @return the time of the creation of this {@link Metrics} in microseconds since the epoch
+     */
+    public long getStartEpochMicros() {
+        return startEpochMicros;
+    }
+
+    /**
+     * @return the time of the creation of this {@link Metrics} as returned by {@link System#nanoTime()}
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return the phases of the {@link Span}s recorded so far in the order of their first occurrence
+     */
+    Map<String, PhaseStats> getPhases() {
+        final Map<String, PhaseStats> result = new LinkedHashMap<>();
+        spans.stream()
+                .sorted(Comparator.comparingLong(s -> s.startNanos))
+                .forEach(s -> result.computeIfAbsent(s.phase, PhaseStats::new).add(s));
+        return result;
+    }
+
+    Map<String, Long> getCounters() {
+        final Map<String, Long> result = new TreeMap<>();
+        for (Entry<String, LongAdder> en : counters.entrySet()) {
+            result.put(en.getKey(), en.getValue().sum());
+        }
+        return result;
+    }
+
+    /**
+     * @param topN the maximal number of {@link Span}s to return
+     * @return the {@link Span}s with the longest duration, the longest first
+     */
+    List<Span> getSlowest(int topN) {
+        return spans.stream()
+                .sorted(Comparator.comparingLong(Span::getDurationNanos).reversed())
+                .limit(topN)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param topN the number of the slowest {@link Span}s to include
+     * @return a few lines summarizing the recorded phases, counters and the {@code topN} slowest {@link Span}s
+     */
+    public List<String> summary(int topN) {
+        final List<String> result = new ArrayList<>();
+        final long wallNanos = System.nanoTime() - startNanos;
+        final StringBuilder sb = new StringBuilder(goal).append(" took ").append(formatNanos(wallNanos));
+        final Map<String, Long> counts = getCounters();
+        if (!counts.isEmpty()) {
+            sb.append(counts.entrySet().stream()
+                    .map(en -> en.getKey() + ": " + en.getValue())
+                    .collect(Collectors.joining(", ", "; ", "")));
+        }
+        result.add(sb.toString());
+        for (PhaseStats phase : getPhases().values()) {
+            result.add(String.format(Locale.ROOT, "    %-16s %6d x %10s total %10s max %10s allocated", phase.phase,
+                    phase.count, formatNanos(phase.totalNanos), formatNanos(phase.maxNanos),
+                    formatBytes(phase.allocatedBytes)));
+        }
+        final List<Span> slowest = getSlowest(topN);
+        if (!slowest.isEmpty()) {
+            result.add("    slowest:");
+            for (Span span : slowest) {
+                result.add(String.format(Locale.ROOT, "    %10s %-16s %s", formatNanos(span.getDurationNanos()),
+                        span.phase, span.subject));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the recorded phases, counters and the {@code topN} slowest {@link Span}s as JSON.
+     *
+     * @param path the file to write
+     * @param topN the number of the slowest {@link Span}s to include
+     * @throws IOException if the file could not be written
+     */
+    public void writeJson(Path path, int topN) throws IOException {
+        Files.createDirectories(path.getParent());
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            w.write("{\n  \"goal\": " + jsonString(goal) + ",\n");
+            w.write("  \"wallMillis\": " + formatMillis(System.nanoTime() - startNanos) + ",\n");
+            w.write("  \"phases\": {");
+            String sep = "\n";
+            for (PhaseStats phase : getPhases().values()) {
+                w.write(sep);
+                sep = ",\n";
+                w.write("    " + jsonString(phase.phase) + ": {\"count\": " + phase.count + ", \"totalMillis\": "
+                        + formatMillis(phase.totalNanos) + ", \"maxMillis\": " + formatMillis(phase.maxNanos)
+                        + ", \"allocatedBytes\": " + phase.allocatedBytes + "}");
+            }
+            w.write("\n  },\n  \"counters\": {");
+            sep = "\n";
+            for (Entry<String, Long> en : getCounters().entrySet()) {
+                w.write(sep);
+                sep = ",\n";
+                w.write("    " + jsonString(en.getKey()) + ": " + en.getValue());
+            }
+            w.write("\n  },\n  \"slowest\": [");
+            sep = "\n";
+            for (Span span : getSlowest(topN)) {
+                w.write(sep);
+                sep = ",\n";
+                w.write("    {\"phase\": " + jsonString(span.phase) + ", \"subject\": " + jsonString(span.subject)
+                        + ", \"millis\": " + formatMillis(span.getDurationNanos()) + ", \"allocatedBytes\": "
+                        + span.allocatedBytes + ", \"thread\": " + jsonString(span.threadName) + "}");
+            }
+            w.write("\n  ]\n}\n");
+        }
+    }
+
+    /**
+     * Writes all recorded {@link Span}s in the Trace Event Format understood by {@code chrome://tracing} and
+     * <a href="https://ui.perfetto.dev/">Perfetto</a>: one complete event per {@link Span}, named by its phase and
+     * placed on the timeline of the thread that started it.
+     *
+     * @param path the file to write
+     * @throws IOException if the file could not be written
+     */
+    public void writeTrace(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        final List<Span> sorted = spans.stream()
+                .sorted(Comparator.comparingLong(s -> s.startNanos))
+                .collect(Collectors.toList());
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            w.write("{\"displayTimeUnit\": \"ms\", \"traceEvents\": [");
+            String sep = "\n";
+            final Map<Long, String> threads = new TreeMap<>();
+            for (Span span : sorted) {
+                threads.putIfAbsent(span.threadId, span.threadName);
+            }
+            for (Entry<Long, String> thread : threads.entrySet()) {
+                w.write(sep);
+                sep = ",\n";
+                w.write("{\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": " + thread.getKey()
+                        + ", \"args\": {\"name\": " + jsonString(thread.getValue()) + "}}");
+            }
+            for (Span span : sorted) {
+                w.write(sep);
+                sep = ",\n";
+                w.write("{\"name\": " + jsonString(span.phase) + ", \"cat\": " + jsonString(goal)
+                        + ", \"ph\": \"X\", \"ts\": " + (startEpochMicros + (span.startNanos - startNanos) / 1000)
+                        + ", \"dur\": " + span.getDurationNanos() / 1000 + ", \"pid\": 1, \"tid\": " + span.threadId
+                        + ", \"args\": {\"gav\": " + jsonString(span.subject) + ", \"thread\": "
+                        + jsonString(span.threadName) + ", \"allocatedBytes\": " + span.allocatedBytes + "}}");
+            }
+            w.write("\n]}\n");
+        }
+    }
+
+    /**
+     * Writes the recorded phases and counters in the OpenMetrics text format.
+     *
+     * @param path the file to write
+     * @throws IOException if the file could not be written
+     */
+    public void writeOpenMetrics(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        final String goalLabel = "goal=" + jsonString(goal);
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            final Map<String, PhaseStats> phases = getPhases();
+            w.write("# TYPE rpkgtests_phase_duration_seconds summary\n");
+            w.write("# UNIT rpkgtests_phase_duration_seconds seconds\n");
+            for (PhaseStats phase : phases.values()) {
+                final String labels = "{" + goalLabel + ",phase=" + jsonString(phase.phase) + "}";
+                w.write("rpkgtests_phase_duration_seconds_count" + labels + " " + phase.count + "\n");
+                w.write("rpkgtests_phase_duration_seconds_sum" + labels + " "
+                        + String.format(Locale.ROOT, "%.9f", phase.totalNanos / 1e9) + "\n");
+            }
+            w.write("# TYPE rpkgtests_phase_allocated_bytes counter\n");
+            w.write("# UNIT rpkgtests_phase_allocated_bytes bytes\n");
+            for (PhaseStats phase : phases.values()) {
+                w.write("rpkgtests_phase_allocated_bytes_total{" + goalLabel + ",phase=" + jsonString(phase.phase)
+                        + "} " + phase.allocatedBytes + "\n");
+            }
+            w.write("# TYPE rpkgtests_events counter\n");
+            for (Entry<String, Long> en : getCounters().entrySet()) {
+                w.write("rpkgtests_events_total{" + goalLabel + ",event=" + jsonString(en.getKey()) + "} "
+                        + en.getValue() + "\n");
+            }
+            w.write("# EOF\n");
+        }
+    }
+
+    static String jsonString(String value) {
+        final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char ch = value.charAt(i);
+            switch (ch) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    if (ch < 0x20) {
+                        sb.append(String.format(Locale.ROOT, "\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000_000L) {
+            return String.format(Locale.ROOT, "%.2f s", nanos / 1e9);
+        }
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 0) {
+            return "n/a";
+        } else if (bytes >= 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+        }
+        return String.format(Locale.ROOT, "%.1f kB", bytes / 1024.0);
+    }
+
+    static long allocatedBytes(long threadId) {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean.getThreadAllocatedBytes(threadId);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets notified about every started and closed {@link Span}. Both methods are called on the thread that started
+     * the {@link Span}.
+     */
+    public interface Listener {
+        default void spanStarted(Span span) {
+        }
+
+        void spanClosed(Span span);
+    }
+
+    /**
+     * A unit of work in some phase.
+     */
+    public class Span implements AutoCloseable {
+        private final String phase;
+        private final String subject;
+        private final String threadName;
+        private final long threadId;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+        private long endNanos;
+        private long allocatedBytes = -1;
+
+        Span(String phase, String subject) {
+            this.phase = phase;
+            this.subject = subject;
+            final Thread thread = Thread.currentThread();
+            this.threadName = thread.getName();
+            this.threadId = thread.getId();
+            for (Listener listener : listeners) {
+                listener.spanStarted(this);
+            }
+            this.startAllocatedBytes = allocatedBytes(threadId);
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            endNanos = System.nanoTime();
+            if (startAllocatedBytes >= 0) {
+                allocatedBytes = allocatedBytes(threadId) - startAllocatedBytes;
+            }
+            spans.add(this);
+            for (Listener listener : listeners) {
+                listener.spanClosed(this);
+            }
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public long getThreadId() {
+            return threadId;
+        }
+
+        /**
+         * @return the start of this {@link Span} as returned by {@link System#nanoTime()}
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return endNanos - startNanos;
+        }
+
+        /**
+         * @return the bytes allocated by the thread that started this {@link Span} or {@code -1} if the JVM does not
+         *         support measuring them
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    static class PhaseStats {
+        private final String phase;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long allocatedBytes;
+
+        PhaseStats(String phase) {
+            this.phase = phase;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        void add(Span span) {
+            count++;
+            final long duration = span.getDurationNanos();
+            totalNanos += duration;
+            maxNanos = Math.max(maxNanos, duration);
+            if (span.allocatedBytes >= 0 && allocatedBytes >= 0) {
+                allocatedBytes += span.allocatedBytes;
+            } else {
+                allocatedBytes = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * A cache of immutable files shared by all builds using the same local Maven repository, by default located next
+ * to it, e.g. in {@code ~/.m2/rpkgtests-cache}.
+ * The entries are stored under {@code <dir>/<kind>/<key>} where {@code key} is a {@link Fingerprint#digest()} of all
+ * inputs the entry was produced from, including the version of this plugin. Hence an entry never needs to be
+ * invalidated; it can only become unused. Unused entries are evicted by {@link #trim()} in the least recently used
+ * order once the total size of the cache exceeds {@code maxBytes}.
+ * <p>
+ * All methods are safe to call from several threads and processes at once: the entries are published atomically and
+ * an entry evicted by a concurrent {@link #trim()} is just a cache miss.
+ */
+class PersistentCache {
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicBoolean written = new AtomicBoolean();
+
+    PersistentCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param kind the kind of the entry, such as {@code catalog} or {@code pom}
+     * @param key the key of the entry
+     * @return the path of the entry or {@code null} if there is no such entry; the modification time of the entry is
+     *         updated to mark it as recently used
+     */
+    Path get(String kind, String key) {
+        final Path entry = entryPath(kind, key);
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return entry;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            /* e.g. a read-only cache directory; the entry is still usable */
+            return Files.exists(entry) ? entry : null;
+        }
+    }
+
+    /**
+     * Stores a copy of the given {@code source} file as the entry identified by {@code kind} and {@code key}.
+     *
+     * @param kind the kind of the entry, such as {@code catalog} or {@code pom}
+     * @param key the key of the entry
+     * @param source the file to store
+     * @throws IOException if the entry could not be written
+     */
+    void put(String kind, String key, Path source) throws IOException {
+        final Path entry = entryPath(kind, key);
+        final Path tmp = RpkgUtils.tempSibling(entry);
+        try {
+            Files.copy(source, tmp);
+            RpkgUtils.moveAtomically(tmp, entry);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        written.set(true);
+    }
+
+    /**
+     * Stores the given {@code content} as the entry identified by {@code kind} and {@code key}.
+     *
+     * @param kind the kind of the entry, such as {@code catalog} or {@code pom}
+     * @param key the key of the entry
+     * @param content the bytes to store
+     * @throws IOException if the entry could not be written
+     */
+    void put(String kind, String key, byte[] content) throws IOException {
+        final Path entry = entryPath(kind, key);
+        final Path tmp = RpkgUtils.tempSibling(entry);
+        try {
+            Files.write(tmp, content);
+            RpkgUtils.moveAtomically(tmp, entry);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        written.set(true);
+    }
+
+    /**
+     * Deletes the least recently used entries until the total size of the cache is at most {@code maxBytes}. Does
+     * nothing unless something was {@code put()} to this {@link PersistentCache} instance, so that the cache
+     * directory is walked only by the builds that make it grow.
+     *
+     * @return the number of deleted entries
+     * @throws IOException if the cache directory could not be walked
+     */
+    int trim() throws IOException {
+        if (!written.getAndSet(false) || !Files.isDirectory(dir)) {
+            return 0;
+        }
+        final List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attrs.isRegularFile()) {
+                        entries.add(new Entry(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                        total += attrs.size();
+                    }
+                } catch (NoSuchFileException e) {
+                    /* deleted concurrently */
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return 0;
+        }
+        entries.sort(Comparator.comparingLong(e -> e.lastModified));
+        int deleted = 0;
+        for (Entry e : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (Files.deleteIfExists(e.path)) {
+                deleted++;
+            }
+            total -= e.size;
+        }
+        return deleted;
+    }
+
+    Path entryPath(String kind, String key) {
+        return dir.resolve(kind).resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    static class Entry {
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+
+        Entry(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The {@code groupId}, {@code artifactId} and {@code version} of a {@code pom.xml} file and of its {@code <parent>},
+ * read by a streaming StAX parser rather than by building a whole Maven {@code Model}. The parsing stops as soon as
+ * the {@code groupId}, {@code artifactId} and {@code version} of the project itself are known, which is usually within
+ * the first few hundred bytes of the file.
+ * <p>
+ * If the {@code groupId} or {@code version} is inherited from the {@code <parent>}, the whole file has to be read,
+ * because Maven does not enforce any order of the top level elements and the project may still declare its own
+ * {@code groupId} or {@code version} after {@code <dependencies>} or {@code <build>}.
+ */
+class PomCoordinates {
+    private static final String PROJECT = "project";
+    private static final String PARENT = "parent";
+    private static final String GROUP_ID = "groupId";
+    private static final String ARTIFACT_ID = "artifactId";
+    private static final String VERSION = "version";
+
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+    private final String parentGroupId;
+    private final String parentVersion;
+
+    PomCoordinates(String groupId, String artifactId, String version, String parentGroupId, String parentVersion) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+        this.parentGroupId = parentGroupId;
+        this.parentVersion = parentVersion;
+    }
+
+    static PomCoordinates read(Path pomPath, Charset charset) {
+        try (Reader r = Files.newBufferedReader(pomPath, charset)) {
+            return read(r, pomPath.toString());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read or parse " + pomPath, e);
+        }
+    }
+
+    static PomCoordinates read(Reader reader, String source) {
+        XMLStreamReader r = null;
+        String groupId = null;
+        String artifactId = null;
+        String version = null;
+        String parentGroupId = null;
+        String parentVersion = null;
+        try {
+            r = RpkgUtils.xmlInputFactory().createXMLStreamReader(reader);
+            int depth = 0;
+            boolean inParent = false;
+            while (r.hasNext()) {
+                final int event = r.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    final String name = r.getLocalName();
+                    if (depth == 1) {
+                        if (!PROJECT.equals(name)) {
+                            throw new IllegalStateException(
+                                    "Expected <" + PROJECT + "> root element, found <" + name + "> in " + source);
+                        }
+                    } else if (depth == 2) {
+                        switch (name) {
+                            case PARENT:
+                                inParent = true;
+                                break;
+                            case GROUP_ID:
+                                groupId = r.getElementText().trim();
+                                depth--;
+                                break;
+                            case ARTIFACT_ID:
+                                artifactId = r.getElementText().trim();
+                                depth--;
+                                break;
+                            case VERSION:
+                                version = r.getElementText().trim();
+                                depth--;
+                                break;
+                            default:
+                                break;
+                        }
+                        if (groupId != null && artifactId != null && version != null) {
+                            /* nothing to inherit from the parent */
+                            return new PomCoordinates(groupId, artifactId, version, parentGroupId, parentVersion);
+                        }
+                    } else if (depth == 3 && inParent) {
+                        switch (name) {
+                            case GROUP_ID:
+                                parentGroupId = r.getElementText().trim();
+                                depth--;
+                                break;
+                            case VERSION:
+                                parentVersion = r.getElementText().trim();
+                                depth--;
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2) {
+                        inParent = false;
+                    }
+                    depth--;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Could not read or parse " + source, e);
+        } finally {
+            if (r != null) {
+                try {
+                    r.close();
+                } catch (XMLStreamException e) {
+                    /* ignore */
+                }
+            }
+        }
+        return new PomCoordinates(groupId, artifactId, version, parentGroupId, parentVersion);
+    }
+
+    /**
+     * @return the {@code groupId} of the project or the one inherited from the {@code <parent>}
+     */
+    String getGroupId() {
+        return groupId != null ? groupId : parentGroupId;
+    }
+
+    String getArtifactId() {
+        return artifactId;
+    }
+
+    /**
+     * @return the {@code version} of the project or the one inherited from the {@code <parent>}
+     */
+    String getVersion() {
+        return version != null ? version : parentVersion;
+    }
+
+    Ga toGa(String source) {
+        if (getGroupId() == null || artifactId == null) {
+            throw new IllegalStateException("Could not find the groupId or artifactId in " + source);
+        }
+        return new Ga(getGroupId(), artifactId);
+    }
+
+    Gav toGav(String source) {
+        if (getGroupId() == null || artifactId == null || getVersion() == null) {
+            throw new IllegalStateException("Could not find the groupId, artifactId or version in " + source);
+        }
+        return new Gav(getGroupId(), artifactId, getVersion());
+    }
+}
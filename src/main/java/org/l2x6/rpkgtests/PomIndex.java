@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * A persistent mapping from {@code pom.xml} paths to their sizes, modification times and the {@link Ga}s read from
+ * them, so that {@code create-test-jars-file} needs to read only the {@code pom.xml} files added or changed since its
+ * last execution.
+ * <p>
+ * The file starts with a header line; an index with a different header, e.g. one written by another version of this
+ * plugin, is ignored as a whole. Each further line holds one entry as
+ * {@code <size> <lastModified> <groupId> <artifactId> <path>} separated by tabs.
+ *
+ * @since 0.11.0
+ */
+class PomIndex {
+    private final Map<String, PomEntry> entries;
+
+    PomIndex(Map<String, PomEntry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @param path the file to read
+     * @param header the expected header
+     * @return the {@link PomIndex} stored in {@code path} or an empty {@link PomIndex} if the file does not exist or
+     *         if it has a header other than {@code header}
+     */
+    static PomIndex read(Path path, String header) {
+        final Map<String, PomEntry> entries = new TreeMap<>();
+        try (BufferedReader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (!header.equals(r.readLine())) {
+                return new PomIndex(entries);
+            }
+            String line;
+            while ((line = r.readLine()) != null) {
+                final String[] parts = line.split("\t", 5);
+                if (parts.length == 5) {
+                    entries.put(parts[4], new PomEntry(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                            new Ga(parts[2], parts[3])));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            /* first run */
+        } catch (IOException | RuntimeException e) {
+            /* a broken index is no worse than no index */
+            entries.clear();
+        }
+        return new PomIndex(entries);
+    }
+
+    /**
+     * @param pomPath the path to look up
+     * @param attrs the current attributes of {@code pomPath}
+     * @return the {@link Ga} stored for {@code pomPath} or {@code null} if there is none or if the size or the
+     *         modification time of the file have changed since it was stored
+     */
+    Ga get(Path pomPath, BasicFileAttributes attrs) {
+        final PomEntry entry = entries.get(pomPath.toString());
+        return entry != null && entry.size == attrs.size() && entry.lastModified == attrs.lastModifiedTime().toMillis()
+                ? entry.ga
+                : null;
+    }
+
+    static PomEntry entry(BasicFileAttributes attrs, Ga ga) {
+        return new PomEntry(attrs.size(), attrs.lastModifiedTime().toMillis(), ga);
+    }
+
+    /**
+     * Stores this {@link PomIndex} in the given file atomically.
+     *
+     * @param path the file to write
+     * @param header the header to write as the first line
+     * @throws IOException if the file could not be written
+     */
+    void write(Path path, String header) throws IOException {
+        final Path tmp = RpkgUtils.tempSibling(path);
+        try {
+            try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                w.write(header);
+                w.write('\n');
+                for (Entry<String, PomEntry> en : entries.entrySet()) {
+                    final PomEntry e = en.getValue();
+                    w.write(String.valueOf(e.size));
+                    w.write('\t');
+                    w.write(String.valueOf(e.lastModified));
+                    w.write('\t');
+                    w.write(e.ga.getGroupId());
+                    w.write('\t');
+                    w.write(e.ga.getArtifactId());
+                    w.write('\t');
+                    w.write(en.getKey());
+                    w.write('\n');
+                }
+            }
+            RpkgUtils.moveAtomically(tmp, path);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return entries.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        return entries.equals(((PomIndex) obj).entries);
+    }
+
+    static class PomEntry {
+        private final long size;
+        private final long lastModified;
+        private final Ga ga;
+
+        PomEntry(long size, long lastModified, Ga ga) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.ga = ga;
+        }
+
+        Ga getGa() {
+            return ga;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, lastModified, ga);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            final PomEntry other = (PomEntry) obj;
+            return size == other.size && lastModified == other.lastModified && ga.equals(other.ga);
+        }
+    }
+}
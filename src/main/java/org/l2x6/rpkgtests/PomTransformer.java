@@ -0,0 +1,513 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A single pass streaming rewriter of the POMs of test jars. It renames the {@code artifactId}, appends
+ * {@code " - Tests"} to the {@code name}, removes the {@code description}, {@code build} and {@code profiles}, keeps
+ * only the {@code test} scoped dependencies (without their {@code scope}) and adds a dependency on the original
+ * artifact.
+ * <p>
+ * The output is written directly to the given {@link Writer} in exactly the same form as the JDK's identity
+ * {@link javax.xml.transform.Transformer} serializes a DOM: the whitespace outside of the root element is dropped, the
+ * namespace declarations and attributes are sorted by their qualified names, elements without children are
+ * self-closing and {@code CDATA} sections are written as escaped text.
+ *
+ * @since 0.11.0
+ */
+class PomTransformer {
+    /** To be incremented whenever the output of {@link PomTransformer} changes for the same input */
+    static final String VERSION = "1";
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+
+    /**
+     * Reads a POM from {@code in}, transforms it and writes the result to {@code out}.
+     *
+     * @param in the source POM
+     * @param out where to write the transformed POM
+     * @param newArtifactId the artifactId of the transformed POM
+     * @param groupId the groupId of the original artifact
+     * @param version the version of the original artifact
+     * @throws XMLStreamException if the source POM cannot be parsed
+     * @throws IOException if the transformed POM cannot be written
+     */
+    public static void transform(Reader in, Writer out, String newArtifactId, String groupId, String version)
+            throws XMLStreamException, IOException {
+        final XMLStreamReader reader = RpkgUtils.xmlInputFactory().createXMLStreamReader(in);
+        try {
+            new PomTransformer(reader, out, newArtifactId, groupId, version).transform();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private final XMLStreamReader reader;
+    private final Writer writer;
+    private final String newArtifactId;
+    private final String groupId;
+    private final String version;
+
+    /** Where the output goes currently: {@link #writer}, {@link #deferred} or the buffer of a dependency */
+    private Appendable out;
+    /** {@code true} if the start tag last written to {@link #out} still lacks its closing {@code >} */
+    private boolean startTagOpen;
+
+    private String oldArtifactId;
+    private boolean artifactIdSeen;
+    private boolean nameSeen;
+    private boolean descriptionSeen;
+    private boolean buildSeen;
+    private boolean profilesSeen;
+    private boolean dependenciesSeen;
+
+    /**
+     * The output following the dependency on the original artifact in case it had to be written before
+     * {@link #oldArtifactId} was known
+     */
+    private StringBuilder deferred;
+
+    PomTransformer(XMLStreamReader reader, Writer writer, String newArtifactId, String groupId, String version) {
+        this.reader = reader;
+        this.writer = writer;
+        this.out = writer;
+        this.newArtifactId = newArtifactId;
+        this.groupId = groupId;
+        this.version = version;
+    }
+
+    void transform() throws XMLStreamException, IOException {
+        writer.write(XML_DECLARATION);
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (!"project".equals(reader.getLocalName())) {
+                        throw new IllegalStateException("Expected <project> root element; found <" + reader.getLocalName()
+                                + ">");
+                    }
+                    writeStartElement();
+                    project();
+                    break;
+                case XMLStreamConstants.COMMENT:
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    copyNode();
+                    break;
+                default:
+                    /* ignore whitespace and DTD outside of the root element */
+                    break;
+            }
+        }
+        if (!artifactIdSeen) {
+            throw new IllegalStateException("Could not find /project/artifactId");
+        }
+    }
+
+    void project() throws XMLStreamException, IOException {
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    switch (reader.getLocalName()) {
+                        case "artifactId":
+                            if (!artifactIdSeen) {
+                                artifactIdSeen = true;
+                                writeStartElement();
+                                oldArtifactId = readText();
+                                writeText(newArtifactId);
+                                writeEndElement();
+                                if (deferred != null) {
+                                    escape(oldArtifactId, writer, false);
+                                    writer.append(deferred);
+                                    deferred = null;
+                                    out = writer;
+                                }
+                            } else {
+                                copyElement();
+                            }
+                            break;
+                        case "name":
+                            if (!nameSeen) {
+                                nameSeen = true;
+                                writeStartElement();
+                                final String name = readText();
+                                writeText(name + " - Tests");
+                                writeEndElement();
+                            } else {
+                                copyElement();
+                            }
+                            break;
+                        case "description":
+                            if (!descriptionSeen) {
+                                descriptionSeen = true;
+                                skipElement();
+                            } else {
+                                copyElement();
+                            }
+                            break;
+                        case "build":
+                            if (!buildSeen) {
+                                buildSeen = true;
+                                skipElement();
+                            } else {
+                                copyElement();
+                            }
+                            break;
+                        case "profiles":
+                            if (!profilesSeen) {
+                                profilesSeen = true;
+                                skipElement();
+                            } else {
+                                copyElement();
+                            }
+                            break;
+                        case "dependencies":
+                            writeStartElement();
+                            dependencies(!dependenciesSeen);
+                            dependenciesSeen = true;
+                            break;
+                        default:
+                            copyElement();
+                            break;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (!dependenciesSeen) {
+                        closeStartTag();
+                        out.append("<dependencies>");
+                        appendOriginalDependency();
+                        out.append("</dependencies>");
+                    }
+                    writeEndElement();
+                    return;
+                default:
+                    copyNode();
+                    break;
+            }
+        }
+    }
+
+    void dependencies(boolean first) throws XMLStreamException, IOException {
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if ("dependency".equals(reader.getLocalName())) {
+                        dependency();
+                    } else {
+                        copyElement();
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (first) {
+                        appendOriginalDependency();
+                    }
+                    writeEndElement();
+                    return;
+                default:
+                    copyNode();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Buffers the current {@code dependency} element until its {@code scope} is known. Test scoped dependencies are
+     * written to the output without their {@code scope} element, all other ones are dropped.
+     */
+    void dependency() throws XMLStreamException, IOException {
+        final Appendable parentOut = out;
+        final boolean parentStartTagOpen = startTagOpen;
+        final StringBuilder buffer = new StringBuilder();
+        out = buffer;
+        startTagOpen = false;
+
+        writeStartElement();
+        String scope = null;
+        boolean done = false;
+        while (!done) {
+            final int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (scope == null && "scope".equals(reader.getLocalName())) {
+                        scope = readText();
+                    } else {
+                        copyElement();
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    writeEndElement();
+                    done = true;
+                    break;
+                default:
+                    copyNode();
+                    break;
+            }
+        }
+
+        out = parentOut;
+        startTagOpen = parentStartTagOpen;
+        if ("test".equals(scope)) {
+            closeStartTag();
+            out.append(buffer);
+        }
+    }
+
+    void appendOriginalDependency() throws IOException {
+        closeStartTag();
+        out.append("<dependency><groupId>");
+        escape(groupId, out, false);
+        out.append("</groupId><artifactId>");
+        if (artifactIdSeen) {
+            escape(oldArtifactId, out, false);
+        } else {
+            /* The dependencies precede the artifactId; keep the rest in memory until the artifactId is known */
+            deferred = new StringBuilder();
+            out = deferred;
+        }
+        out.append("</artifactId><version>");
+        escape(version, out, false);
+        out.append("</version></dependency>");
+    }
+
+    /**
+     * Copies the current element including all its descendants to {@link #out}.
+     */
+    void copyElement() throws XMLStreamException, IOException {
+        writeStartElement();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    writeStartElement();
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    writeEndElement();
+                    depth--;
+                    break;
+                default:
+                    copyNode();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Skips the current element including all its descendants.
+     */
+    void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Consumes the current element including all its descendants.
+     *
+     * @return the concatenated text of all descendants, like {@link org.w3c.dom.Node#getTextContent()}
+     */
+    String readText() throws XMLStreamException {
+        final StringBuilder result = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    result.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return result.toString();
+    }
+
+    void copyNode() throws IOException {
+        switch (reader.getEventType()) {
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (reader.getTextLength() > 0) {
+                    closeStartTag();
+                    escape(new String(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength()), out,
+                            false);
+                }
+                break;
+            case XMLStreamConstants.COMMENT:
+                closeStartTag();
+                out.append("<!--").append(reader.getText()).append("-->");
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                closeStartTag();
+                out.append("<?").append(reader.getPITarget());
+                final String data = reader.getPIData();
+                if (data != null && !data.isEmpty()) {
+                    out.append(' ').append(data);
+                }
+                out.append("?>");
+                break;
+            default:
+                break;
+        }
+    }
+
+    void writeStartElement() throws IOException {
+        closeStartTag();
+        out.append('<');
+        appendQName(reader.getPrefix(), reader.getLocalName());
+
+        final int nsCount = reader.getNamespaceCount();
+        if (nsCount > 0) {
+            final String[][] namespaces = new String[nsCount][];
+            for (int i = 0; i < nsCount; i++) {
+                final String prefix = reader.getNamespacePrefix(i);
+                namespaces[i] = new String[] { prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix,
+                        reader.getNamespaceURI(i) };
+            }
+            appendAttributes(namespaces);
+        }
+        final int attrCount = reader.getAttributeCount();
+        if (attrCount > 0) {
+            final String[][] attributes = new String[attrCount][];
+            for (int i = 0; i < attrCount; i++) {
+                final String prefix = reader.getAttributePrefix(i);
+                final String localName = reader.getAttributeLocalName(i);
+                attributes[i] = new String[] { prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName,
+                        reader.getAttributeValue(i) };
+            }
+            appendAttributes(attributes);
+        }
+        startTagOpen = true;
+    }
+
+    void appendAttributes(String[][] attributes) throws IOException {
+        if (attributes.length > 1) {
+            Arrays.sort(attributes, (a, b) -> a[0].compareTo(b[0]));
+        }
+        for (String[] attribute : attributes) {
+            out.append(' ').append(attribute[0]).append("=\"");
+            escape(attribute[1], out, true);
+            out.append('"');
+        }
+    }
+
+    void writeEndElement() throws IOException {
+        if (startTagOpen) {
+            out.append("/>");
+            startTagOpen = false;
+        } else {
+            out.append("</");
+            appendQName(reader.getPrefix(), reader.getLocalName());
+            out.append('>');
+        }
+    }
+
+    void writeText(String text) throws IOException {
+        if (!text.isEmpty()) {
+            closeStartTag();
+            escape(text, out, false);
+        }
+    }
+
+    void closeStartTag() throws IOException {
+        if (startTagOpen) {
+            out.append('>');
+            startTagOpen = false;
+        }
+    }
+
+    void appendQName(String prefix, String localName) throws IOException {
+        if (prefix != null && !prefix.isEmpty()) {
+            out.append(prefix).append(':');
+        }
+        out.append(localName);
+    }
+
+    static void escape(String text, Appendable out, boolean attribute) throws IOException {
+        final int len = text.length();
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            final char c = text.charAt(i);
+            final String replacement;
+            int consumed = 1;
+            switch (c) {
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '"':
+                    replacement = attribute ? "&quot;" : null;
+                    break;
+                case '\r':
+                    replacement = "&#13;";
+                    break;
+                case '\n':
+                    replacement = attribute ? "&#10;" : null;
+                    break;
+                case '\t':
+                    replacement = attribute ? "&#9;" : null;
+                    break;
+                default:
+                    if (c >= 0x7f && c <= 0x9f) {
+                        replacement = "&#" + (int) c + ";";
+                    } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+                        replacement = "&#" + Character.toCodePoint(c, text.charAt(i + 1)) + ";";
+                        consumed = 2;
+                    } else {
+                        replacement = null;
+                    }
+                    break;
+            }
+            if (replacement != null) {
+                out.append(text, start, i).append(replacement);
+                i += consumed - 1;
+                start = i + 1;
+            }
+        }
+        out.append(text, start, len);
+    }
+
+}
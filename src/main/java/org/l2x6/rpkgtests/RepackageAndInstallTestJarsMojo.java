@@ -23,21 +23,22 @@ import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.execution.MavenSession;
@@ -54,10 +55,9 @@ import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResult;
 import org.apache.maven.shared.transfer.dependencies.resolve.DependencyResolver;
 import org.apache.maven.shared.transfer.dependencies.resolve.DependencyResolverException;
 import org.apache.maven.shared.transfer.repository.RepositoryManager;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.eclipse.aether.SyncContext;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
 
 /**
  * A mojo to repackage test JARs.
@@ -65,7 +65,7 @@ import org.w3c.dom.NodeList;
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  * @since 0.1.0
  */
-@Mojo(name = "rpkgtests", requiresDependencyResolution = ResolutionScope.NONE, defaultPhase = LifecyclePhase.GENERATE_RESOURCES)
+@Mojo(name = "rpkgtests", requiresDependencyResolution = ResolutionScope.NONE, defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
 public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMojo {
 
     /** The directory where this mojo stores its temporary files */
@@ -77,11 +77,64 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
      * installed already. Otherwise, if an artifact with the transformed name is available in the local Maven
      * repository, the mojo does nothing for that particular artifact.
      *
-     * {@link #force} is implictly {@code true} for all {@link #testJars} having version ending with {@code -SNAPSHOT}.
+     * {@link #testJars} having version ending with {@code -SNAPSHOT} are always downloaded, but they are transformed
+     * and installed only if the {@code tests} jar or the POM have changed since they were repackaged last time, or if
+     * the repackaging was done by a different version of this plugin.
      */
     @Parameter(property = "rpkgtests.force", defaultValue = "false")
     private boolean force;
 
+    /**
+     * The number of threads to use for each of the download, transform and install stages. The stages are overlapped,
+     * so that an artifact can be transformed as soon as it was downloaded, regardless of the downloads still in
+     * progress. If {@code 0} or less, the number of available processors is used.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * How to download the test jars and their POMs. Possible values:
+     * <ul>
+     * <li>{@code transitive} - resolve each test jar one by one together with the whole tree of its transitive
+     * dependencies</li>
+     * <li>{@code direct} - resolve just the test jars and their POMs, all of them in a single batch; the batch is
+     * recorded as a single {@code resolve} unit of work and each file downloaded within it as a separate
+     * {@code download} unit</li>
+     * </ul>
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.resolution", defaultValue = "transitive")
+    private String resolution;
+
+    /**
+     * How to install the {@code tests} jar as the jar of the {@code -rpkgtests} artifact in the local Maven
+     * repository. Possible values:
+     * <ul>
+     * <li>{@code copy} - copy the file</li>
+     * <li>{@code hardlink} - create a hard link to the {@code tests} jar</li>
+     * <li>{@code symlink} - create a relative symbolic link to the {@code tests} jar</li>
+     * <li>{@code auto} - {@code hardlink} if both jars are on the same file store, {@code copy} otherwise</li>
+     * </ul>
+     * If creating a link fails, the file is copied.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.installStrategy", defaultValue = "copy")
+    private String installStrategy;
+
+    /**
+     * If {@code true} the SHA-256 digests of the {@code tests} jar and the POM will be used to find out whether a
+     * {@code -SNAPSHOT} test jar has changed since it was repackaged last time; otherwise the sizes and modification
+     * times are used.
+     *
+     * @since 0.11.0
+     */
+    @Parameter(property = "rpkgtests.fingerprintSha256", defaultValue = "false")
+    private boolean fingerprintSha256;
+
     /** If {@code true} the mojo does nothing; othewise it does its business as usual. */
     @Parameter(property = "rpkgtests.skip", defaultValue = "false")
     private boolean skip;
@@ -102,30 +155,112 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
     private RepositoryManager repositoryManager;
 
     @Override
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    protected void doExecute() throws MojoExecutionException, MojoFailureException {
         if (skip) {
             getLog().info("Skipping as requested via the skip mojo parameter");
         }
-        for (Gav artifact : getTestJarsOrFail()) {
-            final LocalRepoArtifact localRepoArtifact = createLocalRepoArtifact(artifact);
-            final boolean installed = localRepoArtifact.installed;
-            final boolean isSnapshot = artifact.version.endsWith("-SNAPSHOT");
-            final boolean performRpkg = force || !installed || isSnapshot;
-            getLog()
-                    .info("force = " + force + "; " + localRepoArtifact.artifact
-                            + (installed ? " installed;" : " not installed;")
-                            + (isSnapshot ? " is SNAPSHOT;" : " is not SNAPSHOT;")
-                            + (performRpkg ? " thus repackaging" : " thus skipping the repackaging"));
-            if (performRpkg) {
-                download(localRepoArtifact);
-                final InstallableArtifact installable = transform(localRepoArtifact);
-                install(installable);
+        final ProjectBuildingRequest buildingRequest = session.getProjectBuildingRequest();
+        final int threadCount = RpkgUtils.effectiveThreads(threads);
+        final ExecutorService downloadExecutor = RpkgUtils.newFixedThreadPool("rpkgtests-download", threadCount);
+        final ExecutorService transformExecutor = RpkgUtils.newFixedThreadPool("rpkgtests-transform", threadCount);
+        final ExecutorService installExecutor = RpkgUtils.newFixedThreadPool("rpkgtests-install", threadCount);
+        final ResolutionMode resolutionMode = ResolutionMode.of(resolution);
+        final InstallStrategy strategy = InstallStrategy.of(installStrategy);
+        try {
+            final List<LocalRepoArtifact> rpkgArtifacts = new ArrayList<>();
+            for (Gav artifact : getTestJarsOrFail()) {
+                final LocalRepoArtifact localRepoArtifact = createLocalRepoArtifact(buildingRequest, artifact);
+                final boolean installed = localRepoArtifact.installed;
+                final boolean isSnapshot = artifact.version.endsWith("-SNAPSHOT");
+                final boolean performRpkg = force || !installed || isSnapshot;
+                getLog()
+                        .debug("force = " + force + "; " + localRepoArtifact.artifact
+                                + (installed ? " installed;" : " not installed;")
+                                + (isSnapshot ? " is SNAPSHOT;" : " is not SNAPSHOT;")
+                                + (!performRpkg ? " thus skipping the repackaging"
+                                        : (force || !installed) ? " thus repackaging"
+                                                : " thus repackaging if changed"));
+                if (performRpkg) {
+                    rpkgArtifacts.add(localRepoArtifact);
+                } else {
+                    metrics.count("installed", 1);
+                }
+            }
+
+            /* Start with the biggest jars so that they do not end up as a long tail */
+            rpkgArtifacts.sort(Comparator.comparing(a -> a.artifact.getMetadata(),
+                    TestJarMetadata.BY_TESTS_JAR_SIZE_DESC));
+
+            final CompletableFuture<Map<Gav, Throwable>> batchDownload = resolutionMode == ResolutionMode.DIRECT
+                    ? CompletableFuture.supplyAsync(() -> {
+                        try (Metrics.Span span = metrics.start("resolve", rpkgArtifacts.size() + " test jars")) {
+                            return downloadDirectly(rpkgArtifacts);
+                        }
+                    }, downloadExecutor)
+                    : null;
+            final Map<Gav, CompletableFuture<Void>> pipelines = new LinkedHashMap<>();
+            for (LocalRepoArtifact localRepoArtifact : rpkgArtifacts) {
+                final CompletableFuture<Void> downloaded = batchDownload != null
+                        ? batchDownload.thenAccept(downloadFailures -> {
+                            final Throwable failure = downloadFailures.get(localRepoArtifact.artifact);
+                            if (failure != null) {
+                                throw new CompletionException(failure);
+                            }
+                            assertDownloaded(localRepoArtifact);
+                        })
+                        : CompletableFuture.runAsync(() -> {
+                            try (Metrics.Span span = metrics.start("download", localRepoArtifact.artifact.toString())) {
+                                download(buildingRequest, localRepoArtifact);
+                            }
+                        }, downloadExecutor);
+                /*
+                 * Each stage has its own pool so that a slow download does not hold up the transformations and
+                 * installations of the artifacts that are downloaded already
+                 */
+                pipelines.put(localRepoArtifact.artifact, downloaded
+                        .thenApplyAsync(v -> {
+                            try (Metrics.Span span = metrics.start("transform", localRepoArtifact.artifact.toString())) {
+                                return transformIfNeeded(localRepoArtifact);
+                            }
+                        }, transformExecutor)
+                        .thenAcceptAsync(installable -> {
+                            if (installable != null) {
+                                try (Metrics.Span span = metrics.start("install",
+                                        localRepoArtifact.artifact.toString())) {
+                                    install(strategy, installable);
+                                }
+                                metrics.count("repackaged", 1);
+                            } else {
+                                metrics.count("upToDate", 1);
+                            }
+                        }, installExecutor));
             }
+
+            final Map<Gav, Throwable> failures = new TreeMap<>();
+            for (Entry<Gav, CompletableFuture<Void>> pipeline : pipelines.entrySet()) {
+                try {
+                    pipeline.getValue().join();
+                } catch (CompletionException e) {
+                    failures.put(pipeline.getKey(), e.getCause() != null ? e.getCause() : e);
+                }
+            }
+            if (!failures.isEmpty()) {
+                metrics.count("failed", failures.size());
+                for (Entry<Gav, Throwable> failure : failures.entrySet()) {
+                    getLog().error("Could not repackage " + failure.getKey(), failure.getValue());
+                }
+                throw new MojoFailureException(
+                        "Could not repackage " + failures.size() + " test jar(s): " + failures.keySet());
+            }
+        } finally {
+            downloadExecutor.shutdownNow();
+            transformExecutor.shutdownNow();
+            installExecutor.shutdownNow();
+            trimPersistentCache();
         }
     }
 
-    private LocalRepoArtifact createLocalRepoArtifact(Gav artifact) {
-        final ProjectBuildingRequest request = session.getProjectBuildingRequest();
+    private LocalRepoArtifact createLocalRepoArtifact(ProjectBuildingRequest request, Gav artifact) {
         final Path repoRoot = repositoryManager.getLocalRepositoryBasedir(request).toPath();
 
         final String newAId = artifact.artifactId + "-rpkgtests";
@@ -138,156 +273,205 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
         final Path oldPomPath = repoRoot.resolve(repositoryManager.getPathForLocalArtifact(request,
                 artifact.asArtifactCoordinate(artifact.artifactId, "pom", null)));
 
+        final Path fingerprintPath = newPomPath.resolveSibling(newAId + "-" + artifact.version + ".rpkgtests.properties");
+        final Path lockPath = newPomPath.resolveSibling(newAId + "-" + artifact.version + ".rpkgtests.lock");
+
         final LocalRepoArtifact localRepoArtifact = new LocalRepoArtifact(artifact, newAId,
-                Files.exists(newJarPath) && Files.exists(newPomPath), newJarPath, newPomPath, oldJarPath, oldPomPath);
+                Files.exists(newJarPath) && Files.exists(newPomPath), newJarPath, newPomPath, oldJarPath, oldPomPath,
+                fingerprintPath, lockPath);
         return localRepoArtifact;
     }
 
-    private void install(InstallableArtifact installable) throws MojoExecutionException {
-        try {
-            Files.createDirectories(installable.local.newLocalRepoJarPath.getParent());
-            Files.copy(installable.local.oldLocalRepoJarPath, installable.local.newLocalRepoJarPath,
-                    StandardCopyOption.REPLACE_EXISTING);
-        } catch (IOException e) {
-            throw new RuntimeException("Could not copy from " + installable.local.oldLocalRepoJarPath + " to "
-                    + installable.local.newLocalRepoJarPath, e);
-        }
-        try {
-            Files.createDirectories(installable.local.newLocalRepoPomPath.getParent());
-            Files.copy(installable.sourcePomPath, installable.local.newLocalRepoPomPath, StandardCopyOption.REPLACE_EXISTING);
-        } catch (IOException e) {
-            throw new RuntimeException(
-                    "Could not copy from " + installable.sourcePomPath + " to " + installable.local.newLocalRepoPomPath,
-                    e);
-        }
-    }
-
     /**
-     * A generator of XPath 1.0 "any namespace" selector, such as
-     * {@code /*:[local-name()='foo']/*:[local-name()='bar']}. In XPath 2.0, this would be just {@code /*:foo/*:bar},
-     * but as of Java 13, there is only XPath 1.0 available in the JDK.
+     * Installs the given {@code installable} under an exclusive {@link SyncContext} covering just the given artifact,
+     * so that the Maven Resolver does not read the artifact while it is being written. Whether the {@link SyncContext}
+     * coordinates anything across processes depends on the Maven version and on the named lock configuration of the
+     * resolver, so the writes are additionally serialized per artifact by an {@link ArtifactLock} on a lock file next
+     * to the artifact: concurrent installers of the same artifact in any thread or process wait for each other, while
+     * installers of unrelated artifacts do not. The jar, the POM and the fingerprint are each published atomically and
+     * the fingerprint comes last, so that an interrupted installation is redone by the next build.
      *
-     * @param elements namespace-less element names
-     * @return am XPath 1.0 style selector
+     * @param strategy the {@link InstallStrategy} to use for the jar
+     * @param installable the artifact to install
      */
-    static String anyNs(String... elements) {
-        StringBuilder sb = new StringBuilder();
-        for (String e : elements) {
-            sb.append("/*[local-name()='").append(e).append("']");
+    void install(InstallStrategy strategy, InstallableArtifact installable) {
+        final LocalRepoArtifact local = installable.local;
+        try (SyncContext syncContext = newSyncContext()) {
+            syncContext.acquire(
+                    Collections.singleton(new DefaultArtifact(local.artifact.groupId, local.newArtifactId, "jar",
+                            local.artifact.version)),
+                    null);
+            try (ArtifactLock lock = ArtifactLock.acquire(local.lockPath)) {
+                try {
+                    final InstallStrategy effectiveStrategy = strategy.install(local.oldLocalRepoJarPath,
+                            local.newLocalRepoJarPath);
+                    if (getLog().isDebugEnabled()) {
+                        getLog().debug("Installed " + local.newLocalRepoJarPath + " using "
+                                + effectiveStrategy.name().toLowerCase(Locale.ROOT) + " strategy");
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not install " + local.oldLocalRepoJarPath + " as "
+                            + local.newLocalRepoJarPath, e);
+                }
+                try {
+                    InstallStrategy.COPY.install(installable.sourcePomPath, local.newLocalRepoPomPath);
+                } catch (IOException e) {
+                    throw new RuntimeException(
+                            "Could not copy from " + installable.sourcePomPath + " to " + local.newLocalRepoPomPath,
+                            e);
+                }
+                installable.fingerprint.write(local.fingerprintPath);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not lock " + local.lockPath, e);
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(installable.sourcePomPath);
+            } catch (IOException e) {
+                getLog().warn("Could not delete " + installable.sourcePomPath, e);
+            }
         }
-        return sb.toString();
     }
 
-    static Node textElement(Document document, String elementName, String value) {
-        final Node result = document.createElement(elementName);
-        result.appendChild(document.createTextNode(value));
-        return result;
+    /**
+     * @param localRepoArtifact the artifact to transform
+     * @return the {@link InstallableArtifact} or {@code null} if the given {@code localRepoArtifact}
+     *         was installed already from the current {@code tests} jar and POM
+     */
+    InstallableArtifact transformIfNeeded(LocalRepoArtifact localRepoArtifact) {
+        final Fingerprint fingerprint = Fingerprint.builder()
+                .value("plugin.version", pluginVersion)
+                .value("transform.version", PomTransformer.VERSION)
+                .file("jar", localRepoArtifact.oldLocalRepoJarPath, fingerprintSha256)
+                .file("pom", localRepoArtifact.oldLocalRepoPomPath, fingerprintSha256)
+                .build();
+        if (!force && localRepoArtifact.installed
+                && fingerprint.equals(Fingerprint.read(localRepoArtifact.fingerprintPath))) {
+            getLog().debug(localRepoArtifact.artifact + " has not changed since it was repackaged last time");
+            return null;
+        }
+        return transform(localRepoArtifact, fingerprint);
     }
 
-    private InstallableArtifact transform(LocalRepoArtifact localRepoArtifact) {
+    private InstallableArtifact transform(LocalRepoArtifact localRepoArtifact, Fingerprint fingerprint) {
         final Gav artifact = localRepoArtifact.artifact;
-
+        getLog().debug("Transforming " + artifact);
+        final Path pomPath = localRepoArtifact.oldLocalRepoPomPath;
+        final Path workDirPath = workDir.toPath();
+        final Path testsPom;
         try {
-            final Transformer t = TransformerFactory.newInstance().newTransformer();
-            final XPath xPath = XPathFactory.newInstance().newXPath();
-            getLog().warn("Transforming " + artifact);
-            final Path pomPath = localRepoArtifact.oldLocalRepoPomPath;
-            final DOMResult result = new DOMResult();
-            try (Reader r = Files.newBufferedReader(pomPath)) {
-                t.transform(new StreamSource(r), result);
-            } catch (IOException e) {
-                throw new RuntimeException("Could not read " + pomPath, e);
-            } catch (TransformerException e) {
-                throw new RuntimeException("Could not transform to DOM: " + pomPath, e);
+            Files.createDirectories(workDirPath);
+            /* Unique per execution so that concurrent executions sharing the workDir do not overwrite each other */
+            testsPom = Files.createTempFile(workDirPath, localRepoArtifact.newArtifactId + "-" + artifact.version + "-",
+                    ".pom");
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create a temporary file in " + workDirPath, e);
+        }
+        boolean success = false;
+        try {
+            /* The POM of a release never changes so the result of its transformation can be shared across builds */
+            final PersistentCache cache = isRelease(artifact) ? getPersistentCache() : null;
+            final String cacheKey = cache != null ? Fingerprint.builder()
+                    .value("plugin.version", pluginVersion)
+                    .value("transform.version", PomTransformer.VERSION)
+                    .value("groupId", artifact.groupId)
+                    .value("artifactId", localRepoArtifact.newArtifactId)
+                    .value("version", artifact.version)
+                    .file("pom", pomPath, true)
+                    .build()
+                    .digest() : null;
+            final Path cached = cache != null ? cache.get(POM, cacheKey) : null;
+            if (cached != null) {
+                try {
+                    Files.copy(cached, testsPom, StandardCopyOption.REPLACE_EXISTING);
+                    metrics.count("persistentCacheHits", 1);
+                    success = true;
+                    return new InstallableArtifact(localRepoArtifact, testsPom, fingerprint);
+                } catch (IOException e) {
+                    getLog().debug("Could not copy " + cached + "; transforming " + pomPath, e);
+                }
             }
-            final Document doc = (Document) result.getNode();
-            final Node artifactNode = (Node) xPath.evaluate(anyNs("project", "artifactId"), doc, XPathConstants.NODE);
-            final String oldArtifactId = artifactNode.getTextContent();
-            artifactNode.setTextContent(localRepoArtifact.newArtifactId);
-
-            final Node nameNode = (Node) xPath.evaluate(anyNs("project", "name"), doc, XPathConstants.NODE);
-            if (nameNode != null) {
-                nameNode.setTextContent(nameNode.getTextContent() + " - Tests");
+            try (Reader r = Files.newBufferedReader(pomPath); Writer w = Files.newBufferedWriter(testsPom)) {
+                PomTransformer.transform(r, w, localRepoArtifact.newArtifactId, artifact.groupId, artifact.version);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not transform " + pomPath + " to " + testsPom, e);
+            } catch (XMLStreamException e) {
+                throw new RuntimeException("Could not parse " + pomPath, e);
             }
-
-            remove(xPath, anyNs("project", "description"), doc);
-
-            final NodeList deps = (NodeList) xPath.evaluate(anyNs("project", "dependencies", "dependency"), doc,
-                    XPathConstants.NODESET);
-            for (int i = 0; i < deps.getLength(); i++) {
-                final Node dep = deps.item(i);
-                final Node scope = (Node) xPath.evaluate("*[local-name()='scope']", dep, XPathConstants.NODE);
-                if (scope != null && "test".equals(scope.getTextContent())) {
-                    scope.getParentNode().removeChild(scope);
-                } else {
-                    dep.getParentNode().removeChild(dep);
+            if (cache != null) {
+                try {
+                    cache.put(POM, cacheKey, testsPom);
+                } catch (IOException e) {
+                    getLog().warn("Could not cache " + testsPom, e);
                 }
             }
-
-            Node depsNode = (Node) xPath.evaluate(anyNs("project", "dependencies"), doc, XPathConstants.NODE);
-            if (depsNode == null) {
-                depsNode = doc.createElement("dependencies");
-                ((Node) xPath.evaluate(anyNs("project"), doc, XPathConstants.NODE)).appendChild(depsNode);
-            }
-
-            final Node newDep = doc.createElement("dependency");
-            depsNode.appendChild(newDep);
-            doc.createElement("dependency");
-            newDep.appendChild(textElement(doc, "groupId", artifact.groupId));
-            newDep.appendChild(textElement(doc, "artifactId", oldArtifactId));
-            newDep.appendChild(textElement(doc, "version", artifact.version));
-
-            remove(xPath, anyNs("project", "build"), doc);
-            remove(xPath, anyNs("project", "profiles"), doc);
-
-            final Path testsPom = workDir.toPath().resolve(localRepoArtifact.newArtifactId + "-" + artifact.version + ".pom");
-            Files.createDirectories(testsPom.getParent());
-            try (Writer w = Files.newBufferedWriter(testsPom)) {
-                t.transform(new DOMSource(doc), new StreamResult(w));
-            } catch (IOException e) {
-                throw new RuntimeException("Could not write " + testsPom, e);
-            } catch (TransformerException e) {
-                throw new RuntimeException("Could not serialize DOM: " + testsPom, e);
+            final InstallableArtifact result = new InstallableArtifact(localRepoArtifact, testsPom, fingerprint);
+            success = true;
+            return result;
+        } finally {
+            if (!success) {
+                /* On success, install() deletes it */
+                try {
+                    Files.deleteIfExists(testsPom);
+                } catch (IOException e) {
+                    getLog().warn("Could not delete " + testsPom, e);
+                }
             }
-            return new InstallableArtifact(localRepoArtifact, testsPom);
-        } catch (TransformerConfigurationException | XPathExpressionException | DOMException
-                | TransformerFactoryConfigurationError | IOException e) {
-            throw new RuntimeException("Could not transform " + artifact, e);
         }
-
     }
 
-    private void remove(XPath xPath, String xPathExpression, Document doc) throws XPathExpressionException {
-        final Node node = (Node) xPath.evaluate(xPathExpression, doc, XPathConstants.NODE);
-        if (node != null) {
-            node.getParentNode().removeChild(node);
-        }
-    }
-
-    private void download(LocalRepoArtifact localRepoArtifact) throws MojoFailureException {
+    private void download(ProjectBuildingRequest buildingRequest, LocalRepoArtifact localRepoArtifact) {
 
         try {
             Iterable<ArtifactResult> resolvedArtifacts = dependencyResolver.resolveDependencies(
-                    session.getProjectBuildingRequest(), localRepoArtifact.artifact.asDependableCoordinate(), null);
-            boolean jarDownloaded = false;
+                    buildingRequest, localRepoArtifact.artifact.asDependableCoordinate(), null);
             for (ArtifactResult ar : resolvedArtifacts) {
                 if (ar.getArtifact().getFile().toPath().equals(localRepoArtifact.oldLocalRepoJarPath)) {
-                    jarDownloaded = true;
-                    break;
+                    return;
                 }
             }
-            if (Files.exists(localRepoArtifact.oldLocalRepoJarPath)) {
-                jarDownloaded = true;
-            }
+            assertDownloaded(localRepoArtifact);
+        } catch (DependencyResolverException e) {
+            throw new RuntimeException("Could not download " + localRepoArtifact.artifact, e);
+        }
+
+    }
 
-            if (!jarDownloaded) {
-                throw new IllegalStateException("Could not assert that " + localRepoArtifact.artifact
-                        + ":jar was downloaded as " + localRepoArtifact.oldLocalRepoJarPath);
+    /**
+     * Resolves just the {@code tests} jars and the POMs of the given {@code artifacts} in a single batch, without
+     * walking their dependency trees.
+     *
+     * @param artifacts the artifacts to resolve
+     * @return a {@link Map} from the {@link Gav}s that could not be resolved to the reason of the failure
+     */
+    private Map<Gav, Throwable> downloadDirectly(List<LocalRepoArtifact> artifacts) {
+        final List<Artifact> requested = new ArrayList<>(artifacts.size() * 2);
+        for (LocalRepoArtifact localRepoArtifact : artifacts) {
+            requested.add(localRepoArtifact.artifact.asAetherArtifact("jar", "tests"));
+            requested.add(localRepoArtifact.artifact.asAetherArtifact("pom", null));
+        }
+        final List<org.eclipse.aether.resolution.ArtifactResult> results = resolveArtifactsRecordingDownloads(requested);
+        final Map<Gav, Throwable> failures = new HashMap<>();
+        final Iterator<org.eclipse.aether.resolution.ArtifactResult> resultsIt = results.iterator();
+        for (LocalRepoArtifact localRepoArtifact : artifacts) {
+            for (int i = 0; i < 2; i++) {
+                final org.eclipse.aether.resolution.ArtifactResult result = resultsIt.next();
+                if (!result.isResolved() && !failures.containsKey(localRepoArtifact.artifact)) {
+                    final RuntimeException e = new RuntimeException(
+                            "Could not download " + result.getRequest().getArtifact());
+                    result.getExceptions().forEach(e::addSuppressed);
+                    failures.put(localRepoArtifact.artifact, e);
+                }
             }
-        } catch (DependencyResolverException e) {
-            throw new MojoFailureException("Could not download " + localRepoArtifact.artifact, e);
         }
+        return failures;
+    }
 
+    private static void assertDownloaded(LocalRepoArtifact localRepoArtifact) {
+        if (!Files.exists(localRepoArtifact.oldLocalRepoJarPath)) {
+            throw new IllegalStateException("Could not assert that " + localRepoArtifact.artifact
+                    + ":jar was downloaded as " + localRepoArtifact.oldLocalRepoJarPath);
+        }
     }
 
     public static class LocalRepoArtifact {
@@ -299,9 +483,12 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
         private final Path oldLocalRepoJarPath;
         private final Path oldLocalRepoPomPath;
         private final String newArtifactId;
+        private final Path fingerprintPath;
+        private final Path lockPath;
 
         public LocalRepoArtifact(Gav artifact, String newArtifactId, boolean installed, Path newLocalRepoJarPath,
-                Path newLocalRepoPomPath, Path oldLocalRepoJarPath, Path oldLocalRepoPomPath) {
+                Path newLocalRepoPomPath, Path oldLocalRepoJarPath, Path oldLocalRepoPomPath, Path fingerprintPath,
+                Path lockPath) {
             super();
             this.artifact = artifact;
             this.newArtifactId = newArtifactId;
@@ -310,17 +497,30 @@ public class RepackageAndInstallTestJarsMojo extends AbstractTestJarsConsumerMoj
             this.newLocalRepoPomPath = newLocalRepoPomPath;
             this.oldLocalRepoJarPath = oldLocalRepoJarPath;
             this.oldLocalRepoPomPath = oldLocalRepoPomPath;
+            this.fingerprintPath = fingerprintPath;
+            this.lockPath = lockPath;
+        }
+    }
+
+    enum ResolutionMode {
+        TRANSITIVE,
+        DIRECT;
+
+        static ResolutionMode of(String value) {
+            return RpkgUtils.parseEnum(ResolutionMode.class, value, "resolution");
         }
     }
 
     public static class InstallableArtifact {
         private final LocalRepoArtifact local;
         private final Path sourcePomPath;
+        private final Fingerprint fingerprint;
 
-        public InstallableArtifact(LocalRepoArtifact local, Path pomPath) {
+        public InstallableArtifact(LocalRepoArtifact local, Path pomPath, Fingerprint fingerprint) {
             super();
             this.local = local;
             this.sourcePomPath = pomPath;
+            this.fingerprint = fingerprint;
         }
     }
 
@@ -16,8 +16,182 @@
  */
 package org.l2x6.rpkgtests;
 
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
 public class RpkgUtils {
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+        final XMLInputFactory result = XMLInputFactory.newInstance();
+        result.setProperty(XMLInputFactory.IS_COALESCING, true);
+        result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return result;
+    });
+    private static final ThreadLocal<XMLOutputFactory> XML_OUTPUT_FACTORY = ThreadLocal
+            .withInitial(XMLOutputFactory::newInstance);
+
     public static String unescapePlaceholder(String escapedPlaceholder) {
         return escapedPlaceholder == null ? null : escapedPlaceholder.replace("@{", "${");
     }
+
+    /**
+     * @param <E> the type of the enum
+     * @param type the class of the enum
+     * @param value the value to parse, ignoring case
+     * @param parameterName the name of the mojo parameter the {@code value} comes from, used in the error message
+     * @return the enum constant whose name matches {@code value}
+     */
+    public static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String parameterName) {
+        for (E e : type.getEnumConstants()) {
+            if (e.name().equalsIgnoreCase(value)) {
+                return e;
+            }
+        }
+        throw new IllegalStateException(String.format("Cannot handle %s '%s'; expected one of %s", parameterName, value,
+                Arrays.stream(type.getEnumConstants())
+                        .map(e -> e.name().toLowerCase(Locale.ROOT))
+                        .collect(Collectors.toList())));
+    }
+
+    /**
+     * {@link XMLInputFactory} is not guaranteed to be thread safe, so we keep one per thread to avoid the costly
+     * lookup on every use.
+     *
+     * @return a coalescing {@link XMLInputFactory} with DTD support switched off, bound to the current thread
+     */
+    public static XMLInputFactory xmlInputFactory() {
+        return XML_INPUT_FACTORY.get();
+    }
+
+    /**
+     * @return an {@link XMLOutputFactory} bound to the current thread, see {@link #xmlInputFactory()}
+     */
+    public static XMLOutputFactory xmlOutputFactory() {
+        return XML_OUTPUT_FACTORY.get();
+    }
+
+    /**
+     * @param threads the requested number of threads; {@code 0} or less means the number of available processors
+     * @return the effective number of threads, always at least {@code 1}
+     */
+    public static int effectiveThreads(int threads) {
+        return threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param namePrefix the prefix of the names of the threads in the resulting pool
+     * @param threads the number of threads in the pool
+     * @return a new fixed size pool of daemon threads named {@code <namePrefix>-<n>}
+     */
+    public static ExecutorService newFixedThreadPool(String namePrefix, int threads) {
+        final AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            final Thread t = new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @param <T> the type of the result
+     * @param future the future to wait for
+     * @return the result of the given {@code future}
+     * @throws RuntimeException the exception the {@code future} completed with, unwrapped from
+     *         {@link CompletionException} if possible
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * @param target the file for which a temporary sibling should be created
+     * @return a unique path in the same directory as {@code target} that does not exist yet; the parent directory is
+     *         created if needed
+     * @throws IOException if the parent directory could not be created
+     */
+    public static Path tempSibling(Path target) throws IOException {
+        final Path dir = target.getParent();
+        Files.createDirectories(dir);
+        final Path result = Files.createTempFile(dir, "." + target.getFileName() + ".", ".tmp");
+        Files.delete(result);
+        return result;
+    }
+
+    /**
+     * Moves {@code source} to {@code target} atomically so that readers of {@code target} never see a partially
+     * written file. Falls back to a plain replacing move if the file system does not support atomic moves.
+     *
+     * @param source the file to move, typically a {@link #tempSibling(Path)} of {@code target}
+     * @param target the destination, replaced if it exists
+     * @throws IOException if the move failed
+     */
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Moves {@code source} to {@code target} atomically unless {@code target} exists already and has the same content
+     * as {@code source}, in which case {@code source} is deleted and {@code target} is left untouched, so that its
+     * modification time does not change and tools watching it do not see a change.
+     *
+     * @param source the file to move, typically a {@link #tempSibling(Path)} of {@code target}
+     * @param target the destination
+     * @return {@code true} if {@code target} was replaced; {@code false} if it had the same content already
+     * @throws IOException if the files could not be compared or moved
+     */
+    public static boolean replaceIfChanged(Path source, Path target) throws IOException {
+        if (Files.isRegularFile(target) && Files.size(source) == Files.size(target)
+                && Arrays.equals(Files.readAllBytes(source), Files.readAllBytes(target))) {
+            Files.delete(source);
+            return false;
+        }
+        moveAtomically(source, target);
+        return true;
+    }
+
+    /**
+     * Writes {@code content} to {@code target} atomically unless {@code target} has exactly that content already, in
+     * which case {@code target} is left untouched, see {@link #replaceIfChanged(Path, Path)}.
+     *
+     * @param target the file to write
+     * @param content the bytes to write
+     * @return {@code true} if {@code target} was written; {@code false} if it had the given content already
+     * @throws IOException if the file could not be read or written
+     */
+    public static boolean writeIfChanged(Path target, byte[] content) throws IOException {
+        if (Files.isRegularFile(target) && Files.size(target) == content.length
+                && Arrays.equals(content, Files.readAllBytes(target))) {
+            return false;
+        }
+        final Path tmp = tempSibling(target);
+        try {
+            Files.write(tmp, content);
+            moveAtomically(tmp, target);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return true;
+    }
 }
@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Optional information about how heavy a test jar is, stored along with the {@link Ga} in {@code test-jars.xml} so
+ * that the consumers can schedule the work by cost. Each of the values may be {@code null} if it is not known.
+ *
+ * @since 0.11.0
+ */
+public class TestJarMetadata {
+    /** Orders the heaviest {@code tests} jars first; the ones with unknown size come last */
+    public static final Comparator<TestJarMetadata> BY_TESTS_JAR_SIZE_DESC = Comparator
+            .comparing((TestJarMetadata m) -> m != null ? m.testsJarSize : null,
+                    Comparator.nullsLast(Comparator.reverseOrder()));
+    /** Orders the test jars whose tests took longest first; the ones with unknown duration come last */
+    public static final Comparator<TestJarMetadata> BY_TEST_DURATION_DESC = Comparator
+            .comparing((TestJarMetadata m) -> m != null ? m.testDurationMillis : null,
+                    Comparator.nullsLast(Comparator.reverseOrder()));
+    /**
+     * The {@code time} attributes as written by Surefire, e.g. {@code 1234.5} or {@code 1,234.5}; anything else,
+     * such as {@code 1.234,5} written by some versions under a non-English default locale, is ambiguous
+     */
+    private static final Pattern SUREFIRE_TIME = Pattern.compile("[1-9]\\d{0,2}(?:,\\d{3})+(?:\\.\\d+)?|\\d+(?:\\.\\d+)?");
+
+    private final Long testsJarSize;
+    private final Integer testClasses;
+    private final Long testDurationMillis;
+
+    public TestJarMetadata(Long testsJarSize, Integer testClasses, Long testDurationMillis) {
+        this.testsJarSize = testsJarSize;
+        this.testClasses = testClasses;
+        this.testDurationMillis = testDurationMillis;
+    }
+
+    /**
+     * Collects the metadata from the build directory of a module that was built already.
+     *
+     * @param buildDir the build directory of the module, typically {@code target}
+     * @param testsJarName the file name of the {@code tests} jar or {@code null} to take the most recent
+     *        {@code <artifactId>-*-tests.jar}
+     * @param artifactId the {@code artifactId} of the module
+     * @return the {@link TestJarMetadata} or {@code null} if nothing could be found out
+     */
+    public static TestJarMetadata collect(Path buildDir, String testsJarName, String artifactId) {
+        if (!Files.isDirectory(buildDir)) {
+            return null;
+        }
+        final Path testsJar = testsJarName != null ? buildDir.resolve(testsJarName) : findTestsJar(buildDir, artifactId);
+        Long testsJarSize = null;
+        Integer testClasses = null;
+        if (testsJar != null && Files.isRegularFile(testsJar)) {
+            try (ZipFile zip = new ZipFile(testsJar.toFile())) {
+                testsJarSize = Files.size(testsJar);
+                testClasses = countTestClasses(zip);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read " + testsJar, e);
+            }
+        }
+        final Long testDurationMillis = sumTestDurations(buildDir.resolve("surefire-reports"));
+        return testsJarSize == null && testClasses == null && testDurationMillis == null
+                ? null
+                : new TestJarMetadata(testsJarSize, testClasses, testDurationMillis);
+    }
+
+    static Path findTestsJar(Path buildDir, String artifactId) {
+        Path result = null;
+        FileTime resultTime = null;
+        try (DirectoryStream<Path> jars = Files.newDirectoryStream(buildDir, artifactId + "-*-tests.jar")) {
+            for (Path jar : jars) {
+                final FileTime time = Files.getLastModifiedTime(jar);
+                if (resultTime == null || time.compareTo(resultTime) > 0) {
+                    result = jar;
+                    resultTime = time;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list " + buildDir, e);
+        }
+        return result;
+    }
+
+    /**
+     * @param zip the {@code tests} jar
+     * @return the number of top level classes whose names match the default includes of Surefire, i.e.
+     *         {@code Test*}, {@code *Test}, {@code *Tests} and {@code *TestCase}
+     */
+    static int countTestClasses(ZipFile zip) {
+        int result = 0;
+        final Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            final String name = entries.nextElement().getName();
+            if (name.endsWith(".class") && name.indexOf('$') < 0) {
+                final String simpleName = name.substring(name.lastIndexOf('/') + 1, name.length() - ".class".length());
+                if (simpleName.startsWith("Test") || simpleName.endsWith("Test") || simpleName.endsWith("Tests")
+                        || simpleName.endsWith("TestCase")) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param reportsDir the {@code surefire-reports} directory
+     * @return the sum of the {@code time} attributes of all {@code TEST-*.xml} reports in milliseconds or
+     *         {@code null} if there are no reports; the reports whose {@code time} cannot be parsed are skipped
+     */
+    static Long sumTestDurations(Path reportsDir) {
+        if (!Files.isDirectory(reportsDir)) {
+            return null;
+        }
+        double seconds = 0;
+        boolean found = false;
+        try (DirectoryStream<Path> reports = Files.newDirectoryStream(reportsDir, "TEST-*.xml")) {
+            for (Path report : reports) {
+                final String time = readRootAttribute(report, "time");
+                final Double value = time != null ? parseSeconds(time) : null;
+                if (value != null) {
+                    seconds += value.doubleValue();
+                    found = true;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list " + reportsDir, e);
+        }
+        return found ? Math.round(seconds * 1000) : null;
+    }
+
+    /**
+     * @param time the {@code time} attribute of a Surefire report
+     * @return the number of seconds or {@code null} if {@code time} does not match {@link #SUREFIRE_TIME}
+     */
+    static Double parseSeconds(String time) {
+        final String trimmed = time.trim();
+        if (!SUREFIRE_TIME.matcher(trimmed).matches()) {
+            return null;
+        }
+        /* NumberFormat is not thread safe */
+        final ParsePosition position = new ParsePosition(0);
+        final Number result = NumberFormat.getNumberInstance(Locale.ENGLISH).parse(trimmed, position);
+        return result != null && position.getIndex() == trimmed.length() ? result.doubleValue() : null;
+    }
+
+    static String readRootAttribute(Path xmlPath, String attributeName) {
+        XMLStreamReader r = null;
+        try (Reader reader = Files.newBufferedReader(xmlPath, StandardCharsets.UTF_8)) {
+            r = RpkgUtils.xmlInputFactory().createXMLStreamReader(reader);
+            while (r.hasNext()) {
+                if (r.next() == XMLStreamConstants.START_ELEMENT) {
+                    return r.getAttributeValue(null, attributeName);
+                }
+            }
+            return null;
+        } catch (IOException | XMLStreamException e) {
+            /* a report being written concurrently or a broken one */
+            return null;
+        } finally {
+            if (r != null) {
+                try {
+                    r.close();
+                } catch (XMLStreamException e) {
+                    /* ignore */
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the size of the {@code tests} jar in bytes or {@code null} if not known
+     */
+    public Long getTestsJarSize() {
+        return testsJarSize;
+    }
+
+    /**
+     * @return the number of test classes in the {@code tests} jar or {@code null} if not known
+     */
+    public Integer getTestClasses() {
+        return testClasses;
+    }
+
+    /**
+     * @return the duration of the last known run of the tests in milliseconds or {@code null} if not known
+     */
+    public Long getTestDurationMillis() {
+        return testDurationMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(testsJarSize, testClasses, testDurationMillis);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        final TestJarMetadata other = (TestJarMetadata) obj;
+        return Objects.equals(testsJarSize, other.testsJarSize) && Objects.equals(testClasses, other.testClasses)
+                && Objects.equals(testDurationMillis, other.testDurationMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "testsJarSize=" + testsJarSize + ", testClasses=" + testClasses + ", testDurationMillis="
+                + testDurationMillis;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A directory into which doomed directories are moved by a cheap rename so that the caller can go on immediately,
+ * while the actual deletion happens in the background on a {@link ForkJoinPool} walking the moved trees in parallel.
+ * <p>
+ * The trash directory should be on the same file system as the directories moved into it, typically under
+ * {@code target/}; otherwise {@link #moveToTrash(Path)} returns {@code false} and the caller has to delete the
+ * directory by other means.
+ */
+class Trash implements AutoCloseable {
+    private final Path dir;
+    private final int threads;
+    private Path bin;
+    private ForkJoinPool pool;
+    private ForkJoinTask<?> emptying;
+
+    Trash(Path dir, int threads) {
+        this.dir = dir.toAbsolutePath().normalize();
+        this.threads = threads;
+    }
+
+    /**
+     * @return the absolute normalized path of the trash directory
+     */
+    Path getDir() {
+        return dir;
+    }
+
+    /**
+     * Moves the given directory into this {@link Trash} atomically.
+     *
+     * @param doomed the directory to move
+     * @return {@code true} if {@code doomed} was moved; {@code false} if it could not be renamed, e.g. because it
+     *         is on a different file system
+     */
+    boolean moveToTrash(Path doomed) {
+        try {
+            if (bin == null) {
+                Files.createDirectories(dir);
+                bin = Files.createTempDirectory(dir, "clean-");
+            }
+            RpkgUtils.moveAtomically(doomed, bin.resolve(doomed.getFileName()));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts deleting the content of the trash directory in the background, including any leftovers of previous
+     * executions that did not finish. Does nothing if the trash directory does not exist.
+     */
+    void empty() {
+        if (emptying == null && Files.isDirectory(dir)) {
+            pool = new ForkJoinPool(threads);
+            emptying = pool.submit(new DeleteTask(dir));
+            bin = null;
+        }
+    }
+
+    /**
+     * Waits until the deletion started by {@link #empty()} finishes.
+     *
+     * @throws IOException if some file could not be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (emptying != null) {
+            try {
+                emptying.join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                emptying = null;
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+
+    /**
+     * Deletes a file or a directory tree, forking a subtask for each subdirectory.
+     */
+    static class DeleteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Path path;
+
+        DeleteTask(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    final List<DeleteTask> subdirs = new ArrayList<>();
+                    try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+                        for (Path entry : entries) {
+                            if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                                subdirs.add(new DeleteTask(entry));
+                            } else {
+                                Files.deleteIfExists(entry);
+                            }
+                        }
+                    }
+                    invokeAll(subdirs);
+                }
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
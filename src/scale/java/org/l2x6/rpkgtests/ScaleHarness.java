@@ -0,0 +1,533 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates a synthetic {@code file://} remote repository with {@code scale.artifacts} test jars, a
+ * {@code test-jars.xml} catalog listing them and a project using all goals of this plugin. Then runs
+ * {@code create-test-jars-file}, {@code create-test-modules} and {@code rpkgtests} one after another against a fresh
+ * local Maven repository, each in a separate JVM, and records the wall time, the peak heap usage and the number of
+ * files written by each goal.
+ * <p>
+ * Only {@code file://} repositories are used: the synthetic one and {@code scale.pluginRepository} containing this
+ * plugin and its dependencies, so the harness never touches the network.
+ * <p>
+ * The results are written to {@code <scale.workDir>/results.json}. If {@code scale.baseline} points at a results file
+ * of a previous run, the harness fails if any of the recorded values exceeds the baseline value by more than
+ * {@code scale.tolerance}.
+ */
+public class ScaleHarness {
+    static final String GROUP_ID = "org.acme.scale";
+    static final String VERSION = "1.0";
+    static final String PLUGIN = "org.l2x6.rpkgtests:rpkgtests-maven-plugin";
+    static final String PEAK_HEAP_FILE_PROPERTY = "rpkgtests.scale.peakHeapFile";
+    static final List<String> GOALS = Arrays.asList("create-test-jars-file", "create-test-modules", "rpkgtests");
+    private static final Pattern GOAL_PATTERN = Pattern.compile("\\{\"goal\":\"([^\"]+)\"([^}]*)\\}");
+    private static final Pattern VALUE_PATTERN = Pattern.compile("\"([^\"]+)\":([0-9]+)");
+
+    private final int artifacts;
+    private final Path workDir;
+    private final Path mavenHome;
+    private final Path pluginRepository;
+    private final String pluginVersion;
+    private final List<String> jvmArgs;
+
+    public ScaleHarness(int artifacts, Path workDir, Path mavenHome, Path pluginRepository, String pluginVersion,
+            List<String> jvmArgs) {
+        this.artifacts = artifacts;
+        this.workDir = workDir;
+        this.mavenHome = mavenHome;
+        this.pluginRepository = pluginRepository;
+        this.pluginVersion = pluginVersion;
+        this.jvmArgs = jvmArgs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String jvmArgs = System.getProperty("scale.jvmArgs", "").trim();
+        final ScaleHarness harness = new ScaleHarness(
+                Integer.parseInt(System.getProperty("scale.artifacts", "1000")),
+                Paths.get(System.getProperty("scale.workDir", "target/scale")).toAbsolutePath(),
+                Paths.get(required("maven.home")),
+                Paths.get(required("scale.pluginRepository")).toAbsolutePath(),
+                required("scale.pluginVersion"),
+                jvmArgs.isEmpty() ? new ArrayList<>() : Arrays.asList(jvmArgs.split("\\s+")));
+        final Map<String, Map<String, Long>> results = harness.run();
+
+        final String baseline = System.getProperty("scale.baseline", "").trim();
+        if (!baseline.isEmpty()) {
+            final double tolerance = Double.parseDouble(System.getProperty("scale.tolerance", "0.25"));
+            final List<String> regressions = compare(readResults(Paths.get(baseline)), results, tolerance);
+            if (!regressions.isEmpty()) {
+                System.err.println("Regressions against " + baseline + " with tolerance " + tolerance + ":");
+                regressions.forEach(r -> System.err.println("    " + r));
+                System.exit(1);
+            }
+            System.out.println("No regressions against " + baseline + " with tolerance " + tolerance);
+        }
+    }
+
+    static String required(String key) {
+        final String result = System.getProperty(key);
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("System property " + key + " must be set");
+        }
+        return result;
+    }
+
+    /**
+     * @return a {@link Map} from goal names to {@link Map}s of measured values
+     * @throws IOException          on I/O problems
+     * @throws InterruptedException if interrupted while waiting for a goal to finish
+     */
+    public Map<String, Map<String, Long>> run() throws IOException, InterruptedException {
+        deleteRecursively(workDir);
+        final Path remote = workDir.resolve("remote");
+        final Path sources = workDir.resolve("sources");
+        final Path project = workDir.resolve("project");
+        generate(remote, sources, project);
+        final Path settings = writeSettings(remote);
+        final Path localRepo = workDir.resolve("local-repo");
+        final Path logs = workDir.resolve("logs");
+        Files.createDirectories(logs);
+
+        /*
+         * Resolve the plugin and its dependencies into the fresh local repository upfront so that their download does
+         * not count in the results of the first goal
+         */
+        final Path warmup = workDir.resolve("warmup");
+        Files.createDirectories(warmup.resolve("empty"));
+        write(warmup.resolve("pom.xml"), projectPom(warmup.resolve("empty")));
+        runGoal(GOALS.get(0), warmup, settings, localRepo, logs.resolve("warmup.log"), logs.resolve("warmup.peak-heap"));
+
+        final Map<String, Map<String, Long>> results = new LinkedHashMap<>();
+        for (String goal : GOALS) {
+            final Path peakHeapFile = logs.resolve(goal + ".peak-heap");
+            final Path log = logs.resolve(goal + ".log");
+            /*
+             * Start at a whole second so that files written by the previous goal cannot be counted even on file
+             * systems storing the modification times with a granularity of one second
+             */
+            Thread.sleep(1000 - System.currentTimeMillis() % 1000);
+            final long start = System.currentTimeMillis() / 1000 * 1000;
+            final long startNanos = System.nanoTime();
+            runGoal(goal, project, settings, localRepo, log, peakHeapFile);
+            final long wallMillis = (System.nanoTime() - startNanos) / 1000000;
+            final long[] written = countWritten(start, Arrays.asList(project, localRepo, cacheDir()));
+            final Map<String, Long> values = new LinkedHashMap<>();
+            values.put("wallMillis", wallMillis);
+            values.put("peakHeapBytes", Long.parseLong(new String(Files.readAllBytes(peakHeapFile),
+                    StandardCharsets.UTF_8).trim()));
+            values.put("filesWritten", written[0]);
+            values.put("bytesWritten", written[1]);
+            results.put(goal, values);
+            System.out.println(String.format(Locale.ROOT, "%-22s %8d ms %8d MB heap %8d files %8d kB", goal,
+                    wallMillis, values.get("peakHeapBytes") / (1024 * 1024), written[0], written[1] / 1024));
+        }
+        writeResults(workDir.resolve("results.json"), artifacts, results);
+        return results;
+    }
+
+    /**
+     * @return a cache directory private to this harness, so that the results do not depend on the content of
+     *         {@code ~/.m2/rpkgtests-cache}
+     */
+    Path cacheDir() {
+        return workDir.resolve("rpkgtests-cache");
+    }
+
+    void runGoal(String goal, Path project, Path settings, Path localRepo, Path log, Path peakHeapFile)
+            throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classworldsJar() + File.pathSeparator + harnessClassPath());
+        command.add("-Dclassworlds.conf=" + mavenHome.resolve("bin/m2.conf"));
+        command.add("-Dmaven.home=" + mavenHome);
+        command.add("-Dmaven.multiModuleProjectDirectory=" + project);
+        command.add("-D" + PEAK_HEAP_FILE_PROPERTY + "=" + peakHeapFile);
+        command.add(PeakHeapLauncher.class.getName());
+        command.addAll(Arrays.asList("-B", "-s", settings.toString(), "-Dmaven.repo.local=" + localRepo,
+                "-Drpkgtests.cacheDir=" + cacheDir(), "-f",
+                project.resolve("pom.xml").toString(), PLUGIN + ":" + pluginVersion + ":" + goal + "@" + goal));
+        final Process process = new ProcessBuilder(command)
+                .directory(project.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        final int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException(goal + " failed with exit code " + exitCode + "; see " + log);
+        }
+    }
+
+    void generate(Path remote, Path sources, Path project) throws IOException {
+        final Path groupDir = remote.resolve(GROUP_ID.replace('.', '/'));
+        final StringBuilder catalog = new StringBuilder(128 + artifacts * 160);
+        catalog.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<testArtifacts>\n");
+        for (int i = 0; i < artifacts; i++) {
+            final String artifactId = "scale-" + i;
+            final String pom = pom(artifactId);
+            final Path artifactDir = groupDir.resolve(artifactId).resolve(VERSION);
+            Files.createDirectories(artifactDir);
+            write(artifactDir.resolve(artifactId + "-" + VERSION + ".pom"), pom);
+            writeTestsJar(artifactDir.resolve(artifactId + "-" + VERSION + "-tests.jar"), i);
+            final Path sourceDir = sources.resolve(artifactId);
+            Files.createDirectories(sourceDir);
+            write(sourceDir.resolve("pom.xml"), pom);
+            catalog.append("    <testArtifact>\n")
+                    .append("        <groupId>").append(GROUP_ID).append("</groupId>\n")
+                    .append("        <artifactId>").append(artifactId).append("</artifactId>\n")
+                    .append("    </testArtifact>\n");
+        }
+        catalog.append("</testArtifacts>\n");
+        final Path catalogDir = groupDir.resolve("scale-test-jars").resolve(VERSION);
+        Files.createDirectories(catalogDir);
+        write(catalogDir.resolve("scale-test-jars-" + VERSION + ".xml"), catalog.toString());
+
+        Files.createDirectories(project.resolve("tests/rpkgtests"));
+        write(project.resolve("pom.xml"), projectPom(sources));
+        write(project.resolve("tests/pom.xml"), simplePom("scale-tests", "pom", null));
+        write(project.resolve("tests/rpkgtests/pom.xml"), simplePom("scale-rpkgtests", "jar", "scale-tests"));
+    }
+
+    static String pom(String artifactId) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "    <modelVersion>4.0.0</modelVersion>\n"
+                + "    <groupId>" + GROUP_ID + "</groupId>\n"
+                + "    <artifactId>" + artifactId + "</artifactId>\n"
+                + "    <version>" + VERSION + "</version>\n"
+                + "    <name>Scale :: " + artifactId + "</name>\n"
+                + "    <description>A synthetic test jar</description>\n"
+                + "    <build>\n"
+                + "        <plugins>\n"
+                + "            <plugin>\n"
+                + "                <groupId>org.apache.maven.plugins</groupId>\n"
+                + "                <artifactId>maven-jar-plugin</artifactId>\n"
+                + "                <executions>\n"
+                + "                    <execution>\n"
+                + "                        <goals>\n"
+                + "                            <goal>test-jar</goal>\n"
+                + "                        </goals>\n"
+                + "                    </execution>\n"
+                + "                </executions>\n"
+                + "            </plugin>\n"
+                + "        </plugins>\n"
+                + "    </build>\n"
+                + "</project>\n";
+    }
+
+    String projectPom(Path sources) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "    <modelVersion>4.0.0</modelVersion>\n"
+                + "    <groupId>" + GROUP_ID + "</groupId>\n"
+                + "    <artifactId>scale-project</artifactId>\n"
+                + "    <version>" + VERSION + "</version>\n"
+                + "    <packaging>pom</packaging>\n"
+                + "    <properties>\n"
+                + "        <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>\n"
+                + "    </properties>\n"
+                + "    <build>\n"
+                + "        <plugins>\n"
+                + "            <plugin>\n"
+                + "                <groupId>org.l2x6.rpkgtests</groupId>\n"
+                + "                <artifactId>rpkgtests-maven-plugin</artifactId>\n"
+                + "                <version>" + pluginVersion + "</version>\n"
+                + "                <executions>\n"
+                + "                    <execution>\n"
+                + "                        <id>create-test-jars-file</id>\n"
+                + "                        <configuration>\n"
+                + "                            <testJarsPath>${project.build.directory}/test-jars.xml</testJarsPath>\n"
+                + "                            <fileSets>\n"
+                + "                                <fileSet>\n"
+                + "                                    <directory>" + sources + "</directory>\n"
+                + "                                    <includes>*/pom.xml</includes>\n"
+                + "                                </fileSet>\n"
+                + "                            </fileSets>\n"
+                + "                        </configuration>\n"
+                + "                    </execution>\n"
+                + "                    <execution>\n"
+                + "                        <id>create-test-modules</id>\n"
+                + "                        <configuration>\n"
+                + testJarXmls()
+                + "                            <testModulesParentDir>${project.basedir}/tests</testModulesParentDir>\n"
+                + "                            <rpkgModulePomXmlPath>${project.basedir}/tests/rpkgtests/pom.xml</rpkgModulePomXmlPath>\n"
+                + "                            <rpkgtestsPluginVersion>" + pluginVersion + "</rpkgtestsPluginVersion>\n"
+                + "                        </configuration>\n"
+                + "                    </execution>\n"
+                + "                    <execution>\n"
+                + "                        <id>rpkgtests</id>\n"
+                + "                        <configuration>\n"
+                + testJarXmls()
+                + "                        </configuration>\n"
+                + "                    </execution>\n"
+                + "                </executions>\n"
+                + "            </plugin>\n"
+                + "        </plugins>\n"
+                + "    </build>\n"
+                + "</project>\n";
+    }
+
+    static String testJarXmls() {
+        return "                            <testJarXmls>\n"
+                + "                                <testJarXml>\n"
+                + "                                    <groupId>" + GROUP_ID + "</groupId>\n"
+                + "                                    <artifactId>scale-test-jars</artifactId>\n"
+                + "                                    <version>" + VERSION + "</version>\n"
+                + "                                </testJarXml>\n"
+                + "                            </testJarXmls>\n";
+    }
+
+    static String simplePom(String artifactId, String packaging, String parentArtifactId) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "    <modelVersion>4.0.0</modelVersion>\n"
+                + (parentArtifactId == null ? ""
+                        : "    <parent>\n"
+                                + "        <groupId>" + GROUP_ID + "</groupId>\n"
+                                + "        <artifactId>" + parentArtifactId + "</artifactId>\n"
+                                + "        <version>" + VERSION + "</version>\n"
+                                + "    </parent>\n")
+                + "    <groupId>" + GROUP_ID + "</groupId>\n"
+                + "    <artifactId>" + artifactId + "</artifactId>\n"
+                + "    <version>" + VERSION + "</version>\n"
+                + "    <packaging>" + packaging + "</packaging>\n"
+                + "</project>\n";
+    }
+
+    Path writeSettings(Path remote) throws IOException {
+        final Path result = workDir.resolve("settings.xml");
+        write(result, "<settings>\n"
+                + "    <profiles>\n"
+                + "        <profile>\n"
+                + "            <id>rpkgtests-scale</id>\n"
+                + "            <repositories>\n"
+                + repository("repository", "central", pluginRepository)
+                + repository("repository", "rpkgtests-scale", remote)
+                + "            </repositories>\n"
+                + "            <pluginRepositories>\n"
+                + repository("pluginRepository", "central", pluginRepository)
+                + "            </pluginRepositories>\n"
+                + "        </profile>\n"
+                + "    </profiles>\n"
+                + "    <activeProfiles>\n"
+                + "        <activeProfile>rpkgtests-scale</activeProfile>\n"
+                + "    </activeProfiles>\n"
+                + "</settings>\n");
+        return result;
+    }
+
+    static String repository(String element, String id, Path path) {
+        return "                <" + element + ">\n"
+                + "                    <id>" + id + "</id>\n"
+                + "                    <url>" + path.toUri() + "</url>\n"
+                + "                    <releases><checksumPolicy>ignore</checksumPolicy></releases>\n"
+                + "                    <snapshots><checksumPolicy>ignore</checksumPolicy></snapshots>\n"
+                + "                </" + element + ">\n";
+    }
+
+    static void writeTestsJar(Path path, int index) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+            out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            out.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("org/acme/scale/Scale" + index + "Test.txt"));
+            out.write(("test " + index + "\n").getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    Path classworldsJar() throws IOException {
+        try (Stream<Path> files = Files.list(mavenHome.resolve("boot"))) {
+            return files
+                    .filter(p -> p.getFileName().toString().startsWith("plexus-classworlds")
+                            && p.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No plexus-classworlds jar in " + mavenHome));
+        }
+    }
+
+    static String harnessClassPath() {
+        try {
+            return Paths.get(ScaleHarness.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param  since       the time in milliseconds since the epoch
+     * @param  dirs        the directories to walk
+     * @return             an array containing the number and the total size of the files modified since
+     *                     {@code since}
+     * @throws IOException on I/O problems
+     */
+    static long[] countWritten(long since, List<Path> dirs) throws IOException {
+        final long[] result = new long[2];
+        for (Path dir : dirs) {
+            if (!Files.exists(dir)) {
+                continue;
+            }
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.lastModifiedTime().toMillis() >= since) {
+                        result[0]++;
+                        result[1] += attrs.size();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return result;
+    }
+
+    static void writeResults(Path path, int artifacts, Map<String, Map<String, Long>> results) throws IOException {
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            w.write("{\"artifacts\":" + artifacts + ",\"goals\":[\n");
+            boolean first = true;
+            for (Entry<String, Map<String, Long>> goal : results.entrySet()) {
+                w.write(first ? "  " : ",\n  ");
+                first = false;
+                w.write("{\"goal\":\"" + goal.getKey() + "\"");
+                for (Entry<String, Long> value : goal.getValue().entrySet()) {
+                    w.write(",\"" + value.getKey() + "\":" + value.getValue());
+                }
+                w.write("}");
+            }
+            w.write("\n]}\n");
+        }
+    }
+
+    static Map<String, Map<String, Long>> readResults(Path path) throws IOException {
+        final String json = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        final Map<String, Map<String, Long>> results = new LinkedHashMap<>();
+        final Matcher goalMatcher = GOAL_PATTERN.matcher(json);
+        while (goalMatcher.find()) {
+            final Map<String, Long> values = new LinkedHashMap<>();
+            final Matcher valueMatcher = VALUE_PATTERN.matcher(goalMatcher.group(2));
+            while (valueMatcher.find()) {
+                values.put(valueMatcher.group(1), Long.parseLong(valueMatcher.group(2)));
+            }
+            results.put(goalMatcher.group(1), values);
+        }
+        return results;
+    }
+
+    static List<String> compare(Map<String, Map<String, Long>> baseline, Map<String, Map<String, Long>> actual,
+            double tolerance) {
+        final List<String> result = new ArrayList<>();
+        for (Entry<String, Map<String, Long>> goal : baseline.entrySet()) {
+            final Map<String, Long> actualValues = actual.get(goal.getKey());
+            if (actualValues == null) {
+                continue;
+            }
+            for (Entry<String, Long> value : goal.getValue().entrySet()) {
+                final Long actualValue = actualValues.get(value.getKey());
+                if (actualValue != null && actualValue > value.getValue() * (1 + tolerance)) {
+                    result.add(goal.getKey() + " " + value.getKey() + ": " + actualValue + " > " + value.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    static void write(Path path, String content) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Runs Maven through the plexus-classworlds launcher, just like {@code bin/mvn} does, and stores the sum of the
+     * peak usages of all heap memory pools in the file given by the {@value ScaleHarness#PEAK_HEAP_FILE_PROPERTY}
+     * system property when the JVM exits. The sum of the per-pool peaks is an upper bound of the actual peak heap
+     * usage.
+     */
+    public static class PeakHeapLauncher {
+        public static void main(String[] args) throws Exception {
+            final Path peakHeapFile = Paths.get(required(PEAK_HEAP_FILE_PROPERTY));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                long peak = 0;
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    if (pool.getType() == MemoryType.HEAP) {
+                        peak += pool.getPeakUsage().getUsed();
+                    }
+                }
+                try {
+                    write(peakHeapFile, String.valueOf(peak));
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not write " + peakHeapFile, e);
+                }
+            }));
+            final Method main = Class.forName("org.codehaus.plexus.classworlds.launcher.Launcher")
+                    .getMethod("main", String[].class);
+            main.invoke(null, (Object) args);
+        }
+    }
+}
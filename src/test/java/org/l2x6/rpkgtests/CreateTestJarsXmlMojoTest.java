@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.maven.shared.model.fileset.FileSet;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CreateTestJarsXmlMojoTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void hasTestSources() throws IOException {
+        final Path module = tmp.getRoot().toPath();
+        Assert.assertFalse(CreateTestJarsXmlMojo.hasTestSources(module));
+        Files.createDirectories(module.resolve("src/test/java/org/acme"));
+        Assert.assertFalse(CreateTestJarsXmlMojo.hasTestSources(module));
+        Files.createFile(module.resolve("src/test/java/org/acme/AcmeTest.java"));
+        Assert.assertTrue(CreateTestJarsXmlMojo.hasTestSources(module));
+    }
+
+    @Test
+    public void matches() {
+        final Path dir = Paths.get("target/reactor").toAbsolutePath();
+        final FileSet fs = new FileSet();
+        fs.setDirectory(dir.toString());
+        fs.addInclude("testable-*/pom.xml");
+        fs.addInclude("nested/");
+        fs.addExclude("testable-3/**");
+
+        Assert.assertTrue(CreateTestJarsXmlMojo.matches(fs, dir.resolve("testable-1/pom.xml")));
+        Assert.assertTrue(CreateTestJarsXmlMojo.matches(fs, dir.resolve("nested/deeper/pom.xml")));
+        Assert.assertFalse(CreateTestJarsXmlMojo.matches(fs, dir.resolve("testable-3/pom.xml")));
+        Assert.assertFalse(CreateTestJarsXmlMojo.matches(fs, dir.resolve("lib/pom.xml")));
+        Assert.assertFalse(CreateTestJarsXmlMojo.matches(fs, dir.resolve("../testable-1/pom.xml")));
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.transfer.AbstractTransferListener;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferEvent.EventType;
+import org.eclipse.aether.transfer.TransferEvent.RequestType;
+import org.eclipse.aether.transfer.TransferResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DownloadSpansTest {
+
+    @Test
+    public void spanPerDownload() throws Exception {
+        final Metrics metrics = new Metrics("rpkgtests");
+        final List<String> forwarded = new ArrayList<>();
+        final DownloadSpans listener = new DownloadSpans(new AbstractTransferListener() {
+            @Override
+            public void transferInitiated(TransferEvent event) {
+                forwarded.add("initiated " + event.getResource().getResourceName());
+            }
+
+            @Override
+            public void transferSucceeded(TransferEvent event) {
+                forwarded.add("succeeded " + event.getResource().getResourceName());
+            }
+
+            @Override
+            public void transferFailed(TransferEvent event) {
+                forwarded.add("failed " + event.getResource().getResourceName());
+            }
+        }, metrics);
+
+        final TransferResource jar = new TransferResource("https://repo/", "org/acme/a/1.0/a-1.0-tests.jar", null,
+                null);
+        final TransferResource pom = new TransferResource("https://repo/", "org/acme/a/1.0/a-1.0.pom", null, null);
+        final TransferResource put = new TransferResource("https://repo/", "org/acme/b/1.0/b-1.0.pom", null, null);
+        listener.transferInitiated(event(jar, RequestType.GET, EventType.INITIATED));
+        listener.transferInitiated(event(pom, RequestType.GET, EventType.INITIATED));
+        listener.transferInitiated(event(put, RequestType.PUT, EventType.INITIATED));
+        listener.transferSucceeded(event(jar, RequestType.GET, EventType.SUCCEEDED));
+        listener.transferFailed(event(pom, RequestType.GET, EventType.FAILED));
+        listener.transferSucceeded(event(put, RequestType.PUT, EventType.SUCCEEDED));
+
+        Assert.assertEquals(2, metrics.getPhases().get("download").getCount());
+        Assert.assertEquals(6, forwarded.size());
+        Assert.assertEquals("failed org/acme/a/1.0/a-1.0.pom", forwarded.get(4));
+    }
+
+    static TransferEvent event(TransferResource resource, RequestType requestType, EventType type) {
+        return new TransferEvent.Builder(new DefaultRepositorySystemSession(), resource)
+                .setRequestType(requestType)
+                .setType(type)
+                .build();
+    }
+}
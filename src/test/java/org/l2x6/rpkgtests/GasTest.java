@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GasTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        final List<Ga> gas = Arrays.asList(
+                new Ga("org.l2x6.rpkgtests.create-test-jars", "create-test-jars-testable-1"),
+                new Ga("org.l2x6.rpkgtests.create-test-jars", "create-test-jars-testable-2"),
+                new Ga("org.acme", "escaped-<&>"));
+        final StringWriter out = new StringWriter();
+        new Gas(gas).write(out, StandardCharsets.UTF_8);
+        final String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" //
+                + "<testArtifacts>\n" //
+                + "    <testArtifact>\n" //
+                + "        <groupId>org.l2x6.rpkgtests.create-test-jars</groupId>\n" //
+                + "        <artifactId>create-test-jars-testable-1</artifactId>\n" //
+                + "    </testArtifact>\n" //
+                + "    <testArtifact>\n" //
+                + "        <groupId>org.l2x6.rpkgtests.create-test-jars</groupId>\n" //
+                + "        <artifactId>create-test-jars-testable-2</artifactId>\n" //
+                + "    </testArtifact>\n" //
+                + "    <testArtifact>\n" //
+                + "        <groupId>org.acme</groupId>\n" //
+                + "        <artifactId>escaped-&lt;&amp;&gt;</artifactId>\n" //
+                + "    </testArtifact>\n" //
+                + "</testArtifacts>\n";
+        Assert.assertEquals(expected, out.toString());
+        Assert.assertEquals(gas, Gas.read(new StringReader(out.toString()), "test").getGas());
+    }
+
+    @Test
+    public void metadata() throws IOException {
+        final Ga ga = new Ga("org.acme", "acme-tests").withMetadata(new TestJarMetadata(1234L, null, 5678L));
+        final StringWriter out = new StringWriter();
+        new Gas(Arrays.asList(ga)).write(out, StandardCharsets.UTF_8);
+        Assert.assertTrue(out.toString().contains("        <artifactId>acme-tests</artifactId>\n" //
+                + "        <testsJarSize>1234</testsJarSize>\n" //
+                + "        <testDurationMillis>5678</testDurationMillis>\n" //
+                + "    </testArtifact>\n"));
+        final Ga read = Gas.read(new StringReader(out.toString()), "test").getGas().get(0);
+        Assert.assertEquals(ga, read);
+        Assert.assertEquals(ga.getMetadata(), read.getMetadata());
+        Assert.assertNull(Gas.read(new StringReader("<testArtifacts><testArtifact><groupId>g</groupId>"
+                + "<artifactId>a</artifactId><unknown><nested/></unknown></testArtifact></testArtifacts>"), "test")
+                .getGas().get(0).getMetadata());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void readIncomplete() {
+        Gas.read(new StringReader("<testArtifacts><testArtifact><groupId>g</groupId></testArtifact></testArtifacts>"),
+                "test");
+    }
+}
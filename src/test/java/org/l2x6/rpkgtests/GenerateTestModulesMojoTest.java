@@ -16,18 +16,50 @@
  */
 package org.l2x6.rpkgtests;
 
+import static org.l2x6.rpkgtests.MojoTestUtils.counter;
+import static org.l2x6.rpkgtests.MojoTestUtils.set;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class GenerateTestModulesMojoTest {
     private static final String eol = "\n";
     private static final String indent = "  ";
 
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void unchangedPomsAreNotWritten() throws Exception {
+        final Path dir = createModulesParent();
+        final GenerateTestModulesMojo mojo = newMojo(dir, "a", "b");
+        set(mojo, "clean", false);
+        mojo.execute();
+        /* a, b, rpkg and the parent */
+        Assert.assertEquals(4, counter(mojo, "pomsWritten"));
+
+        final Path aPom = dir.resolve("a/pom.xml");
+        final FileTime past = FileTime.fromMillis((System.currentTimeMillis() - 60_000) / 1000 * 1000);
+        Files.setLastModifiedTime(aPom, past);
+        set(mojo, "force", true);
+        mojo.execute();
+        Assert.assertEquals(0, counter(mojo, "pomsWritten"));
+        Assert.assertEquals(4, counter(mojo, "pomsUpToDate"));
+        Assert.assertEquals(past, Files.getLastModifiedTime(aPom));
+    }
+
     @Test
     public void addModules() {
         assertAddModules(
@@ -107,6 +139,234 @@ public class GenerateTestModulesMojoTest {
 
     }
 
+    @Test
+    public void managedModules() {
+        Assert.assertNull(GenerateTestModulesMojo.managedModules("<project>" + eol //
+                + indent + "<modules>" + eol //
+                + indent + indent + "<module>old-m1</module>" + eol //
+                + indent + "</modules>" + eol //
+                + "</project>"));
+
+        final String source = GenerateTestModulesMojo.addModules("<project>" + eol //
+                + indent + "<modules>" + eol //
+                + indent + indent + "<module>old-m1</module>" + eol //
+                + indent + "</modules>" + eol //
+                + "</project>", Paths.get("pom.xml"), Arrays.asList("m1", "m2"));
+        Assert.assertEquals(Arrays.asList("m1", "m2"), GenerateTestModulesMojo.managedModules(source));
+    }
+
+    @Test
+    public void incrementalCleanDeletesOnlyStaleModules() throws Exception {
+        final Path dir = createModulesParent();
+        final GenerateTestModulesMojo mojo = newMojo(dir, "a", "b");
+        set(mojo, "cleanMode", "incremental");
+        mojo.execute();
+        write(dir.resolve("a/target/classes/A.class"), "a");
+        write(dir.resolve("b/target/classes/B.class"), "b");
+        write(dir.resolve("unmanaged/pom.xml"), "<project/>");
+
+        setTestJars(mojo, "a");
+        mojo.execute();
+        Assert.assertEquals(1, counter(mojo, "staleModules"));
+        Assert.assertFalse(Files.exists(dir.resolve("b")));
+        Assert.assertTrue(Files.exists(dir.resolve("a/pom.xml")));
+        Assert.assertTrue(Files.exists(dir.resolve("a/target/classes/A.class")));
+        Assert.assertTrue(Files.exists(dir.resolve("unmanaged/pom.xml")));
+        Assert.assertEquals(Arrays.asList("a"), GenerateTestModulesMojo
+                .managedModules(new String(Files.readAllBytes(dir.resolve("pom.xml")), StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void incrementalCleanFallsBackToFull() throws Exception {
+        final Path dir = createModulesParent();
+        write(dir.resolve("old/pom.xml"), "<project/>");
+        write(dir.resolve("old/target/classes/Old.class"), "old");
+
+        final GenerateTestModulesMojo mojo = newMojo(dir, "a");
+        set(mojo, "cleanMode", "incremental");
+        mojo.execute();
+        Assert.assertEquals(0, counter(mojo, "staleModules"));
+        Assert.assertFalse(Files.exists(dir.resolve("old")));
+        Assert.assertTrue(Files.exists(dir.resolve("a/pom.xml")));
+        Assert.assertTrue(Files.exists(dir.resolve("pom.xml")));
+    }
+
+    @Test
+    public void excludedFilesSurviveBothCleanStrategies() throws Exception {
+        for (String strategy : Arrays.asList("delete", "trash")) {
+            final Path dir = createModulesParent();
+            write(dir.resolve("a/keep.txt"), "keep");
+            write(dir.resolve("a/target/classes/A.class"), "a");
+            write(dir.resolve("old/target/classes/Old.class"), "old");
+
+            final GenerateTestModulesMojo mojo = newMojo(dir, "a");
+            set(mojo, "cleanStrategy", strategy);
+            set(mojo, "cleanExcludes", Arrays.asList(".**", "pom.xml", "*/keep.txt"));
+            mojo.execute();
+            Assert.assertTrue(strategy, Files.exists(dir.resolve("a/keep.txt")));
+            Assert.assertFalse(strategy, Files.exists(dir.resolve("a/target")));
+            Assert.assertFalse(strategy, Files.exists(dir.resolve("old")));
+            Assert.assertTrue(strategy, Files.exists(dir.resolve("a/pom.xml")));
+            if ("trash".equals(strategy)) {
+                /* a/target and old/target can be moved as a whole, a and old cannot */
+                Assert.assertEquals(2, counter(mojo, "trashedDirs"));
+                Assert.assertFalse(Files.exists(dir.resolve("target/rpkgtests/trash")));
+            }
+        }
+    }
+
+    @Test
+    public void mayMatchBelow() {
+        Assert.assertFalse(GenerateTestModulesMojo.mayMatchBelow(".**", "a"));
+        Assert.assertFalse(GenerateTestModulesMojo.mayMatchBelow("pom.xml", "a"));
+        Assert.assertFalse(GenerateTestModulesMojo.mayMatchBelow("*/keep.txt", "a/target"));
+        Assert.assertFalse(GenerateTestModulesMojo.mayMatchBelow("b/**", "a"));
+        Assert.assertTrue(GenerateTestModulesMojo.mayMatchBelow("*/keep.txt", "a"));
+        Assert.assertTrue(GenerateTestModulesMojo.mayMatchBelow("**/keep.txt", "a/target"));
+        Assert.assertTrue(GenerateTestModulesMojo.mayMatchBelow("a/src/**", "a"));
+        Assert.assertTrue(GenerateTestModulesMojo.mayMatchBelow("a/keep.txt", "a"));
+    }
+
+    @Test
+    public void upToDate() throws Exception {
+        final Path dir = createModulesParent();
+        final Path baseDir = tmp.newFolder().toPath();
+        final Path template = baseDir.resolve("templates/" + GenerateTestModulesMojo.RUN_TESTS_MODULE_POM_TEMPLATE);
+        write(template, "<project><artifactId>[=runTestsModule.artifactId]</artifactId></project>");
+        final Path fingerprintPath = dir.resolve("target/rpkgtests/create-test-modules.fingerprint");
+
+        final GenerateTestModulesMojo mojo = newMojo(dir, "a", "b");
+        mojo.setBaseDir(baseDir.toFile());
+        set(mojo, "templatesUriBase", "file:templates");
+        mojo.execute();
+        Assert.assertEquals(0, counter(mojo, "upToDate"));
+        Assert.assertTrue(Files.exists(fingerprintPath));
+
+        mojo.execute();
+        Assert.assertEquals(1, counter(mojo, "upToDate"));
+
+        /* a template change */
+        write(template, "<project><artifactId>[=runTestsModule.artifactId]</artifactId><!-- changed --></project>");
+        mojo.execute();
+        Assert.assertEquals(0, counter(mojo, "upToDate"));
+        Assert.assertTrue(new String(Files.readAllBytes(dir.resolve("a/pom.xml")), StandardCharsets.UTF_8)
+                .contains("changed"));
+        mojo.execute();
+        Assert.assertEquals(1, counter(mojo, "upToDate"));
+
+        /* a replacer change */
+        set(mojo, "testModuleArtifactIdReplacers", "/^.*$/$0-run/");
+        mojo.execute();
+        Assert.assertEquals(0, counter(mojo, "upToDate"));
+        Assert.assertTrue(new String(Files.readAllBytes(dir.resolve("a/pom.xml")), StandardCharsets.UTF_8)
+                .contains("a-run"));
+        mojo.execute();
+        Assert.assertEquals(1, counter(mojo, "upToDate"));
+
+        /* a deleted output */
+        Files.delete(dir.resolve("b/pom.xml"));
+        mojo.execute();
+        Assert.assertEquals(0, counter(mojo, "upToDate"));
+        Assert.assertTrue(Files.exists(dir.resolve("b/pom.xml")));
+
+        /* a failing execution must not leave a fingerprint behind */
+        write(template, "<project>[=noSuchVariable]</project>");
+        try {
+            mojo.execute();
+            Assert.fail("Expected a failure caused by the broken template");
+        } catch (RuntimeException expected) {
+        }
+        Assert.assertFalse(Files.exists(fingerprintPath));
+        write(template, "<project><artifactId>[=runTestsModule.artifactId]</artifactId></project>");
+        mojo.execute();
+        Assert.assertEquals(0, counter(mojo, "upToDate"));
+        Assert.assertTrue(Files.exists(fingerprintPath));
+    }
+
+    @Test
+    public void moduleOrder() throws Exception {
+        final Path dir = createModulesParent();
+        final GenerateTestModulesMojo mojo = newMojo(dir);
+        setTestJarsWithDurations(mojo, 100L, 200L);
+        mojo.execute();
+        Assert.assertEquals(Arrays.asList("a", "b"), managedModules(dir));
+
+        /* New durations after a catalog refresh change neither the natural order nor the fingerprint */
+        setTestJarsWithDurations(mojo, 300L, 50L);
+        mojo.execute();
+        Assert.assertEquals(1, counter(mojo, "upToDate"));
+        Assert.assertEquals(Arrays.asList("a", "b"), managedModules(dir));
+
+        setTestJarsWithDurations(mojo, 100L, 200L);
+        set(mojo, "moduleOrder", "duration");
+        mojo.execute();
+        Assert.assertEquals(0, counter(mojo, "upToDate"));
+        Assert.assertEquals(Arrays.asList("b", "a"), managedModules(dir));
+    }
+
+    static void setTestJarsWithDurations(GenerateTestModulesMojo mojo, Long aMillis, Long bMillis) {
+        final Gav a = new Gav("org.acme", "a", "1.0");
+        a.setMetadata(new TestJarMetadata(null, null, aMillis));
+        final Gav b = new Gav("org.acme", "b", "1.0");
+        b.setMetadata(new TestJarMetadata(null, null, bMillis));
+        set(mojo, "testJars", Arrays.asList(a, b));
+    }
+
+    static List<String> managedModules(Path dir) throws IOException {
+        return GenerateTestModulesMojo
+                .managedModules(new String(Files.readAllBytes(dir.resolve("pom.xml")), StandardCharsets.UTF_8));
+    }
+
+    Path createModulesParent() throws IOException {
+        final Path dir = tmp.newFolder().toPath();
+        write(dir.resolve("pom.xml"), "<project>" + eol //
+                + indent + "<groupId>org.acme</groupId>" + eol //
+                + indent + "<artifactId>run-tests</artifactId>" + eol //
+                + indent + "<version>1.0</version>" + eol //
+                + indent + "<packaging>pom</packaging>" + eol //
+                + indent + "<modules>" + eol //
+                + indent + indent + "<module>rpkg</module>" + eol //
+                + indent + "</modules>" + eol //
+                + "</project>" + eol);
+        write(dir.resolve("rpkg/pom.xml"), "<project>" + eol //
+                + indent + "<groupId>org.acme</groupId>" + eol //
+                + indent + "<artifactId>rpkg</artifactId>" + eol //
+                + indent + "<version>1.0</version>" + eol //
+                + "</project>" + eol);
+        return dir;
+    }
+
+    static GenerateTestModulesMojo newMojo(Path dir, String... testJarArtifactIds) {
+        final GenerateTestModulesMojo mojo = new GenerateTestModulesMojo();
+        mojo.setBaseDir(dir.toFile());
+        mojo.setTestModulesParentDir(dir.toFile());
+        mojo.setRpkgModulePomXmlPath(dir.resolve("rpkg/pom.xml").toFile());
+        mojo.setFingerprintPath(dir.resolve("target/rpkgtests/create-test-modules.fingerprint").toFile());
+        mojo.setTrashDir(dir.resolve("target/rpkgtests/trash").toFile());
+        setTestJars(mojo, testJarArtifactIds);
+        set(mojo, "pluginVersion", "1.0");
+        set(mojo, "rpkgtestsPluginVersion", "1.0");
+        set(mojo, "templatesUriBase", GenerateTestModulesMojo.DEFAULT_TEMPLATES_URI_BASE);
+        set(mojo, "clean", true);
+        set(mojo, "cleanMode", "full");
+        set(mojo, "moduleOrder", "natural");
+        set(mojo, "cleanStrategy", "delete");
+        set(mojo, "cleanIncludes", Arrays.asList("**"));
+        set(mojo, "cleanExcludes", Arrays.asList(".**", "pom.xml"));
+        return mojo;
+    }
+
+    static void setTestJars(GenerateTestModulesMojo mojo, String... artifactIds) {
+        set(mojo, "testJars", Arrays.stream(artifactIds)
+                .map(artifactId -> new Gav("org.acme", artifactId, "1.0"))
+                .collect(Collectors.toList()));
+    }
+
+    static void write(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
     void assertAddModules(String input, String expected) {
         final List<String> modules = Arrays.asList("m1", "m2");
         final Path p = Paths.get("pom.xml");
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InstallStrategyTest {
+    private static final int EXECUTIONS = 8;
+    private static final int ROUNDS = 50;
+    private static final int SIZE = 256 * 1024;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void installReplaces() throws IOException {
+        final Path dir = tmp.getRoot().toPath();
+        final Path target = dir.resolve("repo/org/acme/acme-rpkgtests/1.0/acme-rpkgtests-1.0.jar");
+        for (InstallStrategy strategy : InstallStrategy.values()) {
+            for (int i = 0; i < 2; i++) {
+                final Path source = createSource(dir.resolve(strategy + "-" + i + ".jar"), (byte) i);
+                strategy.install(source, target);
+                assertContent(target, (byte) i);
+            }
+        }
+        assertNoTempFiles(target.getParent());
+    }
+
+    /**
+     * Simulates several executions installing their own copies of the same artifact to one local repository while
+     * another thread keeps reading the installed file. The reader must never see a missing or partially written file.
+     */
+    @Test
+    public void concurrentInstalls() throws Exception {
+        final Path dir = tmp.getRoot().toPath();
+        final Path target = dir.resolve("repo/org/acme/acme-rpkgtests/1.0/acme-rpkgtests-1.0.jar");
+        final Path fingerprintPath = target.resolveSibling("acme-rpkgtests-1.0.rpkgtests.properties");
+        final List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < EXECUTIONS; i++) {
+            sources.add(createSource(dir.resolve("source-" + i + ".jar"), (byte) i));
+        }
+        InstallStrategy.COPY.install(sources.get(0), target);
+
+        final ExecutorService executor = RpkgUtils.newFixedThreadPool("install-test", EXECUTIONS + 1);
+        try {
+            final AtomicBoolean done = new AtomicBoolean();
+            final CountDownLatch start = new CountDownLatch(1);
+            final Future<Integer> reader = executor.submit(() -> {
+                start.await();
+                int reads = 0;
+                while (!done.get()) {
+                    final byte[] bytes = Files.readAllBytes(target);
+                    Assert.assertEquals(SIZE, bytes.length);
+                    final byte first = bytes[0];
+                    for (byte b : bytes) {
+                        Assert.assertEquals(first, b);
+                    }
+                    final Fingerprint fingerprint = Fingerprint.read(fingerprintPath);
+                    if (fingerprint != null) {
+                        Assert.assertTrue(fingerprint.toString(), fingerprint.toString().contains("jar.size=" + SIZE));
+                    }
+                    reads++;
+                }
+                return reads;
+            });
+            final List<Future<?>> installers = new ArrayList<>();
+            for (int i = 0; i < EXECUTIONS; i++) {
+                final Path source = sources.get(i);
+                final InstallStrategy strategy = InstallStrategy.values()[i % InstallStrategy.values().length];
+                installers.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        strategy.install(source, target);
+                        Fingerprint.builder().file("jar", source, false).build().write(fingerprintPath);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> installer : installers) {
+                installer.get(60, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            Assert.assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertNoTempFiles(target.getParent());
+    }
+
+    static Path createSource(Path path, byte value) throws IOException {
+        final byte[] bytes = new byte[SIZE];
+        Arrays.fill(bytes, value);
+        return Files.write(path, bytes);
+    }
+
+    static void assertContent(Path path, byte value) throws IOException {
+        final byte[] expected = new byte[SIZE];
+        Arrays.fill(expected, value);
+        Assert.assertArrayEquals(expected, Files.readAllBytes(path));
+    }
+
+    static void assertNoTempFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            Assert.assertEquals(Arrays.asList(), files
+                    .map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(".tmp"))
+                    .collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void phases() throws IOException {
+        final Metrics metrics = new Metrics("rpkgtests");
+        try (Metrics.Span span = metrics.start("download", "org.acme:a:1.0")) {
+        }
+        try (Metrics.Span span = metrics.start("download", "org.acme:\"b\":1.0")) {
+        }
+        try (Metrics.Span span = metrics.start("transform", "org.acme:a:1.0")) {
+        }
+        metrics.count("repackaged", 1);
+        metrics.count("repackaged", 1);
+
+        Assert.assertEquals(2, metrics.getPhases().get("download").getCount());
+        Assert.assertEquals(1, metrics.getPhases().get("transform").getCount());
+        Assert.assertEquals(Long.valueOf(2), metrics.getCounters().get("repackaged"));
+        Assert.assertEquals(2, metrics.getSlowest(2).size());
+
+        final List<String> summary = metrics.summary(1);
+        Assert.assertTrue(summary.get(0), summary.get(0).startsWith("rpkgtests took "));
+        Assert.assertTrue(summary.get(0), summary.get(0).endsWith("; repackaged: 2"));
+        Assert.assertEquals(5, summary.size());
+
+        final Path json = tmp.getRoot().toPath().resolve("metrics.json");
+        metrics.writeJson(json, 3);
+        final String jsonSource = new String(Files.readAllBytes(json), StandardCharsets.UTF_8);
+        Assert.assertTrue(jsonSource, jsonSource.contains("\"download\": {\"count\": 2,"));
+        Assert.assertTrue(jsonSource, jsonSource.contains("\"subject\": \"org.acme:\\\"b\\\":1.0\""));
+        Assert.assertTrue(jsonSource, jsonSource.contains("\"repackaged\": 2"));
+
+        final Path openMetrics = tmp.getRoot().toPath().resolve("metrics.txt");
+        metrics.writeOpenMetrics(openMetrics);
+        final String openMetricsSource = new String(Files.readAllBytes(openMetrics), StandardCharsets.UTF_8);
+        Assert.assertTrue(openMetricsSource,
+                openMetricsSource
+                        .contains("rpkgtests_phase_duration_seconds_count{goal=\"rpkgtests\",phase=\"download\"} 2\n"));
+        Assert.assertTrue(openMetricsSource,
+                openMetricsSource.contains("rpkgtests_events_total{goal=\"rpkgtests\",event=\"repackaged\"} 2\n"));
+        Assert.assertTrue(openMetricsSource, openMetricsSource.endsWith("# EOF\n"));
+
+        final Path trace = tmp.getRoot().toPath().resolve("trace.json");
+        metrics.writeTrace(trace);
+        final String traceSource = new String(Files.readAllBytes(trace), StandardCharsets.UTF_8);
+        Assert.assertTrue(traceSource, traceSource.startsWith("{\"displayTimeUnit\": \"ms\", \"traceEvents\": ["));
+        Assert.assertTrue(traceSource, traceSource.contains("{\"name\": \"thread_name\", \"ph\": \"M\""));
+        Assert.assertTrue(traceSource, traceSource.contains("{\"name\": \"transform\", \"cat\": \"rpkgtests\", \"ph\": \"X\""));
+        Assert.assertTrue(traceSource, traceSource.contains("\"gav\": \"org.acme:a:1.0\""));
+    }
+}
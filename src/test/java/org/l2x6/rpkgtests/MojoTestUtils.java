@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.lang.reflect.Field;
+
+/**
+ * Helpers for testing mojos without a Maven runtime.
+ */
+final class MojoTestUtils {
+
+    private MojoTestUtils() {
+    }
+
+    /**
+     * Sets a mojo parameter the way Maven does, i.e. without the need for a setter.
+     */
+    static void set(Object mojo, String fieldName, Object value) {
+        for (Class<?> cl = mojo.getClass(); cl != null; cl = cl.getSuperclass()) {
+            try {
+                final Field field = cl.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(mojo, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                /* try the superclass */
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " in " + mojo.getClass());
+    }
+
+    /**
+     * @return the value of the given {@link Metrics} counter of the last execution of the given {@code mojo} or
+     *         {@code 0} if it was never incremented
+     */
+    static long counter(AbstractRpkgtestsMojo mojo, String name) {
+        final Long result = mojo.metrics.getCounters().get(name);
+        return result == null ? 0 : result.longValue();
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PersistentCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void trimLeastRecentlyUsed() throws IOException {
+        final PersistentCache cache = new PersistentCache(tmp.getRoot().toPath(), 20);
+        final byte[] tenBytes = "0123456789".getBytes(StandardCharsets.UTF_8);
+        final long now = System.currentTimeMillis();
+        cache.put("pom", "aa01", tenBytes);
+        Files.setLastModifiedTime(cache.entryPath("pom", "aa01"), FileTime.fromMillis(now - 30_000));
+        cache.put("pom", "bb02", tenBytes);
+        Files.setLastModifiedTime(cache.entryPath("pom", "bb02"), FileTime.fromMillis(now - 20_000));
+        cache.put("pom", "cc03", tenBytes);
+        Files.setLastModifiedTime(cache.entryPath("pom", "cc03"), FileTime.fromMillis(now - 10_000));
+
+        /* using the oldest entry makes it the most recently used one */
+        final Path used = cache.get("pom", "aa01");
+        Assert.assertNotNull(used);
+        Assert.assertArrayEquals(tenBytes, Files.readAllBytes(used));
+
+        Assert.assertEquals(1, cache.trim());
+        Assert.assertNotNull(cache.get("pom", "aa01"));
+        Assert.assertNull(cache.get("pom", "bb02"));
+        Assert.assertNotNull(cache.get("pom", "cc03"));
+
+        /* nothing was put since the last trim */
+        Assert.assertEquals(0, cache.trim());
+    }
+}
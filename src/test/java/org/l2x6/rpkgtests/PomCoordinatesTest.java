@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PomCoordinatesTest {
+
+    @Test
+    public void own() {
+        final PomCoordinates coords = PomCoordinates.read(new StringReader("<project>\n" //
+                + "    <parent><groupId>org.parent</groupId><artifactId>p</artifactId><version>1</version></parent>\n" //
+                + "    <groupId>org.acme</groupId>\n" //
+                + "    <artifactId>a</artifactId>\n" //
+                + "    <version>2</version>\n" //
+                /* never reached, so that it does not need to be valid */
+                + "    <dependencies><dependency><version>3</version>\n"), "test");
+        Assert.assertEquals(new Gav("org.acme", "a", "2"), coords.toGav("test"));
+    }
+
+    @Test
+    public void inherited() {
+        final PomCoordinates coords = PomCoordinates.read(new StringReader("<project>\n" //
+                + "    <parent><groupId>org.parent</groupId><artifactId>p</artifactId><version>1</version></parent>\n" //
+                + "    <artifactId>a</artifactId>\n" //
+                + "    <dependencies><dependency>\n" //
+                + "        <groupId>org.dep</groupId><artifactId>d</artifactId><version>3</version>\n" //
+                + "    </dependency></dependencies>\n" //
+                + "</project>\n"), "test");
+        Assert.assertEquals(new Gav("org.parent", "a", "1"), coords.toGav("test"));
+    }
+
+    @Test
+    public void ownAfterProperties() {
+        final PomCoordinates coords = PomCoordinates.read(new StringReader("<project>\n" //
+                + "    <parent><groupId>org.parent</groupId><artifactId>p</artifactId><version>1</version></parent>\n" //
+                + "    <artifactId>a</artifactId>\n" //
+                + "    <properties><version>3</version></properties>\n" //
+                + "    <groupId>org.acme</groupId>\n" //
+                + "    <version>2</version>\n" //
+                + "</project>\n"), "test");
+        Assert.assertEquals(new Gav("org.acme", "a", "2"), coords.toGav("test"));
+    }
+
+    @Test
+    public void parentAfterDependencies() {
+        final PomCoordinates coords = PomCoordinates.read(new StringReader("<project>\n" //
+                + "    <artifactId>a</artifactId>\n" //
+                + "    <dependencies><dependency>\n" //
+                + "        <groupId>org.dep</groupId><artifactId>d</artifactId><version>3</version>\n" //
+                + "    </dependency></dependencies>\n" //
+                + "    <parent><groupId>org.parent</groupId><artifactId>p</artifactId><version>1</version></parent>\n" //
+                + "</project>\n"), "test");
+        Assert.assertEquals(new Gav("org.parent", "a", "1"), coords.toGav("test"));
+        Assert.assertEquals(new Ga("org.parent", "a"), coords.toGa("test"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingVersion() {
+        PomCoordinates.read(new StringReader("<project><groupId>g</groupId><artifactId>a</artifactId></project>"),
+                "test").toGav("test");
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The {@code *.expected.xml} files were produced by the DOM and XPath based transformation used before
+ * {@link PomTransformer} was introduced.
+ */
+public class PomTransformerTest {
+
+    @Test
+    public void full() throws IOException, XMLStreamException {
+        assertTransform("full");
+    }
+
+    @Test
+    public void minimal() throws IOException, XMLStreamException {
+        assertTransform("minimal");
+    }
+
+    @Test
+    public void noNamespace() throws IOException, XMLStreamException {
+        assertTransform("nons");
+    }
+
+    @Test
+    public void prefixed() throws IOException, XMLStreamException {
+        assertTransform("prefixed");
+    }
+
+    @Test
+    public void reordered() throws IOException, XMLStreamException {
+        assertTransform("reordered");
+    }
+
+    @Test
+    public void weird() throws IOException, XMLStreamException {
+        assertTransform("weird");
+    }
+
+    static void assertTransform(String name) throws IOException, XMLStreamException {
+        final StringWriter out = new StringWriter();
+        try (Reader in = new InputStreamReader(open(name + ".xml"), StandardCharsets.UTF_8)) {
+            PomTransformer.transform(in, out, name + "-rpkgtests", "org.acme.tests", "1.2.3-SNAPSHOT");
+        }
+        Assert.assertEquals(read(name + ".expected.xml"), out.toString());
+    }
+
+    static InputStream open(String resource) {
+        final InputStream result = PomTransformerTest.class.getClassLoader()
+                .getResourceAsStream("pom-transformer/" + resource);
+        Assert.assertNotNull("Could not find pom-transformer/" + resource, result);
+        return result;
+    }
+
+    static String read(String resource) throws IOException {
+        final StringBuilder result = new StringBuilder();
+        try (Reader in = new InputStreamReader(open(resource), StandardCharsets.UTF_8)) {
+            final char[] buf = new char[4096];
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                result.append(buf, 0, len);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.aether.SyncContext;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.metadata.Metadata;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.l2x6.rpkgtests.RepackageAndInstallTestJarsMojo.InstallableArtifact;
+import org.l2x6.rpkgtests.RepackageAndInstallTestJarsMojo.LocalRepoArtifact;
+
+public class RepackageAndInstallTestJarsMojoTest {
+    private static final int EXECUTIONS = 4;
+    private static final int ROUNDS = 20;
+    private static final int SIZE = 64 * 1024;
+    /* Two snapshots and two releases, the latter go through the persistent cache */
+    private static final List<String> VERSIONS = Arrays.asList("1.0-SNAPSHOT", "1.0-SNAPSHOT", "1.0", "1.0");
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * Several executions transform and install the same test jars to one local repository using one work directory,
+     * with a {@link SyncContext} that does nothing like the one of Maven 3.3.x, while another thread keeps reading the
+     * installed files. The reader must never see a missing or partially written file and no temporary files may be
+     * left behind.
+     */
+    @Test
+    public void concurrentExecutions() throws Exception {
+        final Path dir = tmp.getRoot().toPath();
+        final Path repo = dir.resolve("repo");
+        final Path workDir = dir.resolve("work");
+        final List<LocalRepoArtifact> artifacts = new ArrayList<>();
+        for (int i = 0; i < VERSIONS.size(); i++) {
+            artifacts.add(createTestJar(repo, "a" + i, VERSIONS.get(i), (byte) i));
+        }
+
+        final List<RepackageAndInstallTestJarsMojo> executions = new ArrayList<>();
+        for (int i = 0; i < EXECUTIONS; i++) {
+            final RepackageAndInstallTestJarsMojo mojo = new RepackageAndInstallTestJarsMojo() {
+                @Override
+                protected SyncContext newSyncContext() {
+                    return new NoopSyncContext();
+                }
+            };
+            MojoTestUtils.set(mojo, "workDir", workDir.toFile());
+            MojoTestUtils.set(mojo, "pluginVersion", "1.0");
+            MojoTestUtils.set(mojo, "force", true);
+            MojoTestUtils.set(mojo, "cacheDir", dir.resolve("cache").toFile());
+            MojoTestUtils.set(mojo, "cacheMaxSizeMb", 1L);
+            mojo.metrics = new Metrics("rpkgtests");
+            executions.add(mojo);
+        }
+
+        final ExecutorService executor = RpkgUtils.newFixedThreadPool("rpkgtests-test", EXECUTIONS + 1);
+        try {
+            final AtomicBoolean done = new AtomicBoolean();
+            final CountDownLatch start = new CountDownLatch(1);
+            final Future<Integer> reader = executor.submit(() -> {
+                start.await();
+                int reads = 0;
+                while (!done.get()) {
+                    for (int i = 0; i < artifacts.size(); i++) {
+                        final Path jar = newJarPath(repo, "a" + i, VERSIONS.get(i));
+                        if (Files.exists(jar)) {
+                            assertContent(jar, (byte) i);
+                            final String pom = new String(Files.readAllBytes(newPomPath(repo, "a" + i, VERSIONS.get(i))),
+                                    StandardCharsets.UTF_8);
+                            Assert.assertTrue(pom, pom.contains("<artifactId>a" + i + "-rpkgtests</artifactId>"));
+                            reads++;
+                        }
+                    }
+                }
+                return reads;
+            });
+            final List<Future<?>> installers = new ArrayList<>();
+            for (int i = 0; i < EXECUTIONS; i++) {
+                final RepackageAndInstallTestJarsMojo mojo = executions.get(i);
+                final InstallStrategy strategy = InstallStrategy.values()[i % InstallStrategy.values().length];
+                installers.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (LocalRepoArtifact artifact : artifacts) {
+                            final InstallableArtifact installable = mojo.transformIfNeeded(artifact);
+                            mojo.install(strategy, installable);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> installer : installers) {
+                installer.get(60, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            Assert.assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        /* The in-JVM locks are dropped once nobody uses them */
+        Assert.assertEquals(0, ArtifactLock.jvmLockCount());
+        for (int i = 0; i < artifacts.size(); i++) {
+            assertContent(newJarPath(repo, "a" + i, VERSIONS.get(i)), (byte) i);
+            InstallStrategyTest.assertNoTempFiles(newJarPath(repo, "a" + i, VERSIONS.get(i)).getParent());
+            Assert.assertNotNull(Fingerprint.read(newJarPath(repo, "a" + i, VERSIONS.get(i))
+                    .resolveSibling("a" + i + "-rpkgtests-" + VERSIONS.get(i) + ".rpkgtests.properties")));
+        }
+        try (Stream<Path> files = Files.list(workDir)) {
+            Assert.assertEquals(Arrays.asList(), files.collect(Collectors.toList()));
+        }
+        long cacheHits = 0;
+        for (RepackageAndInstallTestJarsMojo mojo : executions) {
+            final Long hits = mojo.metrics.getCounters().get("persistentCacheHits");
+            cacheHits += hits == null ? 0 : hits.longValue();
+        }
+        Assert.assertTrue(cacheHits > 0);
+    }
+
+    static LocalRepoArtifact createTestJar(Path repo, String artifactId, String version, byte value)
+            throws IOException {
+        final Path versionDir = repo.resolve("org/acme/" + artifactId + "/" + version);
+        Files.createDirectories(versionDir);
+        final byte[] bytes = new byte[SIZE];
+        Arrays.fill(bytes, value);
+        final Path oldJar = Files.write(versionDir.resolve(artifactId + "-" + version + "-tests.jar"), bytes);
+        final Path oldPom = Files.write(versionDir.resolve(artifactId + "-" + version + ".pom"),
+                ("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" //
+                        + "    <modelVersion>4.0.0</modelVersion>\n" //
+                        + "    <groupId>org.acme</groupId>\n" //
+                        + "    <artifactId>" + artifactId + "</artifactId>\n" //
+                        + "    <version>" + version + "</version>\n" //
+                        + "</project>\n").getBytes(StandardCharsets.UTF_8));
+        final String newArtifactId = artifactId + "-rpkgtests";
+        final Path newPom = newPomPath(repo, artifactId, version);
+        return new LocalRepoArtifact(new Gav("org.acme", artifactId, version), newArtifactId, false,
+                newJarPath(repo, artifactId, version), newPom, oldJar, oldPom,
+                newPom.resolveSibling(newArtifactId + "-" + version + ".rpkgtests.properties"),
+                newPom.resolveSibling(newArtifactId + "-" + version + ".rpkgtests.lock"));
+    }
+
+    static Path newJarPath(Path repo, String artifactId, String version) {
+        return repo.resolve("org/acme/" + artifactId + "-rpkgtests/" + version + "/" + artifactId + "-rpkgtests-"
+                + version + ".jar");
+    }
+
+    static Path newPomPath(Path repo, String artifactId, String version) {
+        return repo.resolve("org/acme/" + artifactId + "-rpkgtests/" + version + "/" + artifactId + "-rpkgtests-"
+                + version + ".pom");
+    }
+
+    static void assertContent(Path path, byte value) throws IOException {
+        final byte[] bytes = Files.readAllBytes(path);
+        Assert.assertEquals(path.toString(), SIZE, bytes.length);
+        for (byte b : bytes) {
+            Assert.assertEquals(path.toString(), value, b);
+        }
+    }
+
+    /**
+     * A {@link SyncContext} that does not lock anything, like the one of Maven 3.3.x.
+     */
+    static class NoopSyncContext implements SyncContext {
+        @Override
+        public void acquire(Collection<? extends Artifact> artifacts, Collection<? extends Metadata> metadatas) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestJarMetadataTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void collect() throws IOException {
+        final Path buildDir = tmp.newFolder("target").toPath();
+        final Path oldJar = createJar(buildDir.resolve("acme-0.9-tests.jar"), "org/acme/OldTest.class");
+        Files.setLastModifiedTime(oldJar, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        final Path jar = createJar(buildDir.resolve("acme-1.0-tests.jar"),
+                "org/acme/FooTest.class",
+                "org/acme/FooTest$Inner.class",
+                "org/acme/BarTests.class",
+                "org/acme/BazTestCase.class",
+                "org/acme/TestQux.class",
+                "org/acme/Helper.class",
+                "org/acme/",
+                "META-INF/MANIFEST.MF");
+        createReport(buildDir.resolve("surefire-reports/TEST-org.acme.FooTest.xml"), "1.5");
+        createReport(buildDir.resolve("surefire-reports/TEST-org.acme.BarTests.xml"), "1,000.25");
+        Files.write(buildDir.resolve("surefire-reports/org.acme.FooTest.txt"), "ignored".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals(jar, TestJarMetadata.findTestsJar(buildDir, "acme"));
+        Assert.assertNull(TestJarMetadata.findTestsJar(buildDir, "other"));
+
+        final TestJarMetadata metadata = TestJarMetadata.collect(buildDir, null, "acme");
+        Assert.assertEquals(new TestJarMetadata(Files.size(jar), 4, 1001750L), metadata);
+
+        final TestJarMetadata old = TestJarMetadata.collect(buildDir, "acme-0.9-tests.jar", "acme");
+        Assert.assertEquals(Integer.valueOf(1), old.getTestClasses());
+    }
+
+    @Test
+    public void collectNothing() throws IOException {
+        final Path buildDir = tmp.newFolder("target").toPath();
+        Assert.assertNull(TestJarMetadata.collect(buildDir.resolve("missing"), null, "acme"));
+        Assert.assertNull(TestJarMetadata.collect(buildDir, null, "acme"));
+        Assert.assertNull(TestJarMetadata.sumTestDurations(buildDir.resolve("surefire-reports")));
+    }
+
+    @Test
+    public void sumTestDurations() throws IOException {
+        final Path reportsDir = tmp.newFolder("surefire-reports").toPath();
+        createReport(reportsDir.resolve("TEST-a.xml"), "1.234,5");
+        Files.write(reportsDir.resolve("TEST-broken.xml"), "<testsuite".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNull(TestJarMetadata.sumTestDurations(reportsDir));
+
+        createReport(reportsDir.resolve("TEST-b.xml"), "0.002");
+        Assert.assertEquals(Long.valueOf(2), TestJarMetadata.sumTestDurations(reportsDir));
+    }
+
+    @Test
+    public void parseSeconds() {
+        Assert.assertEquals(Double.valueOf(1.5), TestJarMetadata.parseSeconds("1.5"));
+        Assert.assertEquals(Double.valueOf(12), TestJarMetadata.parseSeconds("12"));
+        Assert.assertEquals(Double.valueOf(1234.5), TestJarMetadata.parseSeconds("1,234.5"));
+        Assert.assertEquals(Double.valueOf(1234567), TestJarMetadata.parseSeconds(" 1,234,567 "));
+        Assert.assertNull(TestJarMetadata.parseSeconds("1.234,5"));
+        Assert.assertNull(TestJarMetadata.parseSeconds("1,5"));
+        Assert.assertNull(TestJarMetadata.parseSeconds("0,500"));
+        Assert.assertNull(TestJarMetadata.parseSeconds("1e3"));
+        Assert.assertNull(TestJarMetadata.parseSeconds(""));
+    }
+
+    static Path createJar(Path path, String... entries) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.closeEntry();
+            }
+        }
+        return path;
+    }
+
+    static void createReport(Path path, String time) throws IOException {
+        Files.createDirectories(path.getParent());
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<testsuite name=\"org.acme.Test\" time=\"" + time + "\" tests=\"1\" errors=\"0\" failures=\"0\">\n"
+                    + "  <testcase name=\"test\" classname=\"org.acme.Test\" time=\"" + time + "\"/>\n"
+                    + "</testsuite>\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
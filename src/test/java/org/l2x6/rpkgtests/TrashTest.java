@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2019 Repackage Tests Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.rpkgtests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TrashTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void moveAndEmpty() throws IOException {
+        final Path root = tmp.getRoot().toPath();
+        final Path module = root.resolve("module");
+        for (int i = 0; i < 3; i++) {
+            final Path dir = Files.createDirectories(module.resolve("target/classes/d" + i));
+            Files.write(dir.resolve("C.class"), new byte[] { 1 });
+        }
+        Files.write(module.resolve("pom.xml"), new byte[] { 2 });
+
+        /* a leftover of a previous execution */
+        final Path trashDir = root.resolve("target/trash");
+        Files.createDirectories(trashDir.resolve("clean-0/old"));
+
+        try (Trash trash = new Trash(trashDir, 2)) {
+            Assert.assertTrue(trash.moveToTrash(module));
+            Assert.assertFalse(Files.exists(module));
+            trash.empty();
+        }
+        Assert.assertFalse(Files.exists(trashDir));
+        Assert.assertTrue(Files.isDirectory(root.resolve("target")));
+    }
+}